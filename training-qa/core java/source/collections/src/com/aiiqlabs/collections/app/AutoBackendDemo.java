@@ -0,0 +1,73 @@
+package com.aiiqlabs.collections.app;
+
+import java.util.Random;
+
+import com.aiiqlabs.lib.list.AdaptiveStudentStore;
+import com.aiiqlabs.lib.list.StudentManager;
+import com.aiiqlabs.modal.Student;
+
+// One workload in three phases - bulk load, lookups by id, whole-roster scans -
+// on fixed ARRAY and INDEXED rosters and on AUTO, which picks for itself as it
+// goes. Ends with the moves AUTO made and why.
+// Args: roster size, lookups in the second phase
+public class AutoBackendDemo {
+
+    public static void main(String[] args) throws InterruptedException {
+        int rosterSize = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int lookups = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+
+        System.out.printf("%-10s %12s %12s %12s%n", "Roster", "load ms", "lookups ms", "scans ms");
+        run("ARRAY", new StudentManager("ARRAY"), rosterSize, lookups);
+        run("INDEXED", new StudentManager("INDEXED"), rosterSize, lookups);
+        AdaptiveStudentStore auto = new AdaptiveStudentStore();
+        run("AUTO", new StudentManager(auto), rosterSize, lookups);
+
+        System.out.println();
+        System.out.println("AUTO ended as " + auto.getType());
+        for (AdaptiveStudentStore.Migration migration : auto.getMigrations()) {
+            System.out.println("  " + migration);
+        }
+        auto.close();
+    }
+
+    private static void run(String label, StudentManager manager, int rosterSize, int lookups)
+            throws InterruptedException {
+        long start = System.nanoTime();
+        for (int i = 0; i < rosterSize; i++) {
+            manager.addStudent(new Student(i, "Student" + i, i % 101));
+        }
+        long load = System.nanoTime() - start;
+
+        Random random = new Random(42);
+        start = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+            int id = random.nextInt(rosterSize);
+            switch (i % 4) {
+                case 0:
+                case 1:
+                    manager.findStudentById(id);
+                    break;
+                case 2:
+                    manager.updateMarks(id, random.nextInt(101));
+                    break;
+                default:
+                    if (manager.removeStudentById(id)) {
+                        manager.addStudent(new Student(id, "Student" + id, 50));
+                    }
+                    break;
+            }
+        }
+        long point = System.nanoTime() - start;
+        Thread.sleep(100);      // let a move in progress finish before the next phase
+
+        double sum = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < 200; i++) {
+            for (double m : manager.getAllMarks()) {
+                sum += m;
+            }
+        }
+        long scans = System.nanoTime() - start;
+        System.out.printf("%-10s %12.1f %12.1f %12.1f%n", label, load / 1e6, point / 1e6, scans / 1e6);
+    }
+}
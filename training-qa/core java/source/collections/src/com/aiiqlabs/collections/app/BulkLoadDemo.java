@@ -0,0 +1,49 @@
+package com.aiiqlabs.collections.app;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.aiiqlabs.lib.io.RosterFormat;
+import com.aiiqlabs.lib.io.RosterLoader;
+import com.aiiqlabs.lib.list.StudentManager;
+
+// Writes a CSV roster, then times RosterLoader filling a StudentManager from it.
+// Args: rows, backend type
+public class BulkLoadDemo {
+
+    private static final String[] NAMES = { "Amit", "Neha", "Raj", "Vijay", "Govind", "Bhanu" };
+
+    public static void main(String[] args) throws IOException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        String type = args.length > 1 ? args[1] : "COLUMNAR";
+
+        Path file = Files.createTempFile("roster", ".csv");
+        try {
+            writeCsv(file, rows);
+            System.out.printf("Roster file: %,d rows, %,d bytes%n", rows, Files.size(file));
+
+            StudentManager manager = new StudentManager(type);
+            long start = System.nanoTime();
+            int loaded = new RosterLoader().load(file, RosterFormat.CSV, manager);
+            long elapsed = System.nanoTime() - start;
+
+            System.out.printf("Loaded %,d students into %s in %d ms (%,.0f rows/sec)%n",
+                    loaded, type, elapsed / 1_000_000, loaded * 1e9 / elapsed);
+            System.out.println("Last student: " + manager.findStudentById(rows - 1));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static void writeCsv(Path file, int rows) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("id,name,marks\n");
+            for (int i = 0; i < rows; i++) {
+                out.write(i + "," + NAMES[i % NAMES.length] + "," + (50 + (i % 500) / 10.0) + "\n");
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.aiiqlabs.collections.app;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import com.aiiqlabs.lib.event.StudentChangeEvent;
+import com.aiiqlabs.lib.event.StudentChangePublisher;
+import com.aiiqlabs.lib.list.StudentManager;
+import com.aiiqlabs.lib.queue.BackpressurePolicy;
+import com.aiiqlabs.modal.Student;
+
+// A running marks average kept up to date from StudentChangePublisher instead
+// of re-scanning the roster, and what publishing costs the updating thread.
+// Costs are CPU time of the updating thread, so on a machine with few cores
+// the subscriber's own work does not count against the publisher.
+// Args: roster size, updates per run
+public class ChangeStreamDemo {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws InterruptedException {
+        int rosterSize = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int updates = args.length > 1 ? Integer.parseInt(args[1]) : 5_000_000;
+
+        StudentManager manager = new StudentManager("INDEXED");
+        for (int i = 0; i < rosterSize; i++) {
+            manager.addStudent(new Student(i, "Student" + i, 50));
+        }
+
+        for (int round = 0; round < 3; round++) {
+            long none = updateAll(manager, rosterSize, updates, round);
+            System.out.printf("%-27s %6.1f ns/update%n", "no subscribers", (double) none / updates);
+            stream(manager, "one subscriber", 0, rosterSize, updates, round + 1);
+            stream(manager, "one subscriber, 1 ms linger", 1, rosterSize, updates, round + 2);
+        }
+    }
+
+    private static void stream(StudentManager manager, String label, long lingerMillis, int rosterSize, int updates,
+            int seed) throws InterruptedException {
+        // One writer and a view that never writes back, so the updates can
+        // wait for the view rather than drop it when it falls behind
+        StudentChangePublisher publisher = new StudentChangePublisher(manager, ForkJoinPool.commonPool(),
+                StudentChangePublisher.DEFAULT_BUFFER_CAPACITY, StudentChangePublisher.DEFAULT_MAX_BATCH,
+                BackpressurePolicy.BLOCK);
+        publisher.setLinger(lingerMillis, TimeUnit.MILLISECONDS);
+
+        // Seed the view from a scan, then follow the stream
+        AverageView view = new AverageView();
+        manager.forEachStudent(s -> view.add(s.getMarks()));
+        publisher.subscribe(view);
+        long cpu = updateAll(manager, rosterSize, updates, seed);
+        publisher.close();
+        view.done.await();
+
+        double[] scan = { 0 };
+        manager.forEachStudent(s -> scan[0] += s.getMarks());
+        System.out.printf("%-27s %6.1f ns/update   %,d events in %,d batches (avg %.0f)   "
+                + "view average %.3f, scan %.3f%n",
+                label, (double) cpu / updates, view.events, view.batches,
+                (double) view.events / Math.max(1, view.batches), view.average(), scan[0] / rosterSize);
+    }
+
+    private static long updateAll(StudentManager manager, int rosterSize, int updates, int seed) {
+        long start = THREADS.getCurrentThreadCpuTime();
+        for (int i = 0; i < updates; i++) {
+            manager.updateMarks((int) ((i * 2654435761L) % rosterSize), (i + seed) % 101);
+        }
+        return THREADS.getCurrentThreadCpuTime() - start;
+    }
+
+    // Count and sum of marks, adjusted per event
+    private static class AverageView implements Flow.Subscriber<List<StudentChangeEvent>> {
+
+        final CountDownLatch done = new CountDownLatch(1);
+        Flow.Subscription subscription;
+        long count;
+        double sum;
+        long events;
+        long batches;
+
+        void add(double marks) {
+            count++;
+            sum += marks;
+        }
+
+        double average() {
+            return sum / count;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(List<StudentChangeEvent> batch) {
+            for (StudentChangeEvent event : batch) {
+                switch (event.getType()) {
+                    case ADDED:
+                        add(event.getNewMarks());
+                        break;
+                    case MARKS_UPDATED:
+                        sum += event.getNewMarks() - event.getOldMarks();
+                        break;
+                    case REMOVED:
+                        count--;
+                        sum -= event.getOldMarks();
+                        break;
+                }
+            }
+            events += batch.size();
+            batches++;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            t.printStackTrace();
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            done.countDown();
+        }
+    }
+}
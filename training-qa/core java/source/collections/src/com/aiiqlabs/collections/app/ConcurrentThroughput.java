@@ -0,0 +1,77 @@
+package com.aiiqlabs.collections.app;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.aiiqlabs.lib.list.StudentManager;
+import com.aiiqlabs.modal.Student;
+
+// Mixed find/update/add throughput of VECTOR, CONCURRENT and SHARDED as threads are added.
+// Args: roster size, seconds per run
+public class ConcurrentThroughput {
+
+    public static void main(String[] args) throws InterruptedException {
+        int rosterSize = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        int maxThreads = Math.max(8, Runtime.getRuntime().availableProcessors());
+
+        ConcurrentThroughput benchmark = new ConcurrentThroughput();
+        System.out.printf("%-8s %-12s %15s%n", "Threads", "Type", "ops/sec");
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            for (String type : new String[] { "VECTOR", "CONCURRENT", "SHARDED" }) {
+                long opsPerSecond = benchmark.run(type, rosterSize, threads, seconds);
+                System.out.printf("%-8d %-12s %,15d%n", threads, type, opsPerSecond);
+            }
+        }
+    }
+
+    // 80% findStudentById, 15% updateMarks, 5% addStudent
+    public long run(String type, int rosterSize, int threads, int seconds) throws InterruptedException {
+        StudentManager manager = new StudentManager(type);
+        for (int i = 0; i < rosterSize; i++) {
+            manager.addStudent(new Student(i, "Student" + i, 50));
+        }
+        AtomicInteger nextId = new AtomicInteger(rosterSize);
+        LongAdder operations = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L + 100_000_000L;
+
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long done = 0;
+                while ((done & 255) != 0 || System.nanoTime() < deadline) {
+                    int dice = random.nextInt(100);
+                    int id = random.nextInt(rosterSize);
+                    if (dice < 80) {
+                        manager.findStudentById(id);
+                    } else if (dice < 95) {
+                        manager.updateMarks(id, random.nextInt(1000) / 10.0);
+                    } else {
+                        int newId = nextId.getAndIncrement();
+                        manager.addStudent(new Student(newId, "Student" + newId, 50));
+                    }
+                    done++;
+                }
+                operations.add(done);
+            });
+            workers[t].start();
+        }
+        long began = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - began;
+        manager.close();
+        return operations.sum() * 1_000_000_000L / elapsed;
+    }
+}
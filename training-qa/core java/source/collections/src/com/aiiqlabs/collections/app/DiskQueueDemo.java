@@ -0,0 +1,69 @@
+package com.aiiqlabs.collections.app;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import com.aiiqlabs.lib.queue.StudentDiskQueueManager;
+import com.aiiqlabs.modal.Student;
+
+// A backlog far larger than the heap in StudentDiskQueueManager, surviving
+// restarts: fill, reopen and serve half, reopen and serve the rest, checking
+// the order and watching heap use and segment files along the way.
+// Args: students, segment size in MB
+public class DiskQueueDemo {
+
+    public static void main(String[] args) throws Exception {
+        long count = args.length > 0 ? Long.parseLong(args[0]) : 10_000_000;
+        int segmentBytes = (args.length > 1 ? Integer.parseInt(args[1]) : 64) << 20;
+        Path directory = Files.createTempDirectory("student-queue");
+        try {
+            long start = System.nanoTime();
+            try (StudentDiskQueueManager queue = StudentDiskQueueManager.open(directory, segmentBytes)) {
+                for (long i = 0; i < count; i++) {
+                    queue.addStudent(new Student((int) i, "Student" + i, i % 100));
+                }
+                report("filled", queue, count, start);
+            }
+
+            start = System.nanoTime();
+            long next = 0;
+            try (StudentDiskQueueManager queue = StudentDiskQueueManager.open(directory)) {
+                for (; next < count / 2; next++) {
+                    check(queue.serveStudent(), next);
+                }
+                report("reopened, served half", queue, count / 2, start);
+            }
+
+            start = System.nanoTime();
+            try (StudentDiskQueueManager queue = StudentDiskQueueManager.open(directory)) {
+                long served = count - next;
+                for (; next < count; next++) {
+                    check(queue.serveStudent(), next);
+                }
+                report("reopened, served rest", queue, served, start);
+                System.out.println("in order: true, empty: " + queue.isQueueEmpty());
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+            }
+        }
+    }
+
+    private static void check(Student s, long expected) {
+        if (s == null || s.getId() != (int) expected) {
+            throw new IllegalStateException("Expected student " + expected + " but served " + s);
+        }
+    }
+
+    private static void report(String phase, StudentDiskQueueManager queue, long ops, long start) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.gc();
+        Runtime rt = Runtime.getRuntime();
+        System.out.printf("%-22s %,12d ops %,12.0f ops/sec  queued %,12d  segments %4d  heap used %,6d KB%n",
+                phase, ops, ops / seconds, queue.getQueueLength(), queue.getSegmentCount(),
+                (rt.totalMemory() - rt.freeMemory()) / 1024);
+    }
+}
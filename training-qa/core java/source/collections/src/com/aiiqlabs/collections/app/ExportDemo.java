@@ -0,0 +1,62 @@
+package com.aiiqlabs.collections.app;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import com.aiiqlabs.lib.io.RosterFormat;
+import com.aiiqlabs.lib.io.RosterLoader;
+import com.aiiqlabs.lib.io.StudentExporter;
+import com.aiiqlabs.lib.list.StudentManager;
+import com.aiiqlabs.modal.Student;
+
+// Times printAllStudents against StudentExporter for each format, then reads
+// the binary dump back with RosterLoader. Args: rows
+public class ExportDemo {
+
+    private static final String[] NAMES = { "Amit", "Neha", "Raj", "Vijay", "Govind", "Bhanu" };
+
+    public static void main(String[] args) throws IOException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        StudentManager manager = new StudentManager("ARRAY");
+        for (int i = 0; i < rows; i++) {
+            manager.addStudent(new Student(i, NAMES[i % NAMES.length], 50 + (i % 500) / 10.0));
+        }
+        Path file = Files.createTempFile("roster", ".out");
+        try {
+            long start = System.nanoTime();
+            PrintStream console = System.out;
+            try (PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(file.toFile())), true)) {
+                System.setOut(out);
+                manager.printAllStudents();
+            } finally {
+                System.setOut(console);
+            }
+            report("printAllStudents", start, file);
+
+            for (RosterFormat format : RosterFormat.values()) {
+                start = System.nanoTime();
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    new StudentExporter(format).export(manager, channel);
+                }
+                report("export " + format, start, file);
+            }
+
+            StudentManager reloaded = new StudentManager("INDEXED");
+            int loaded = new RosterLoader().load(file, RosterFormat.BINARY, reloaded);
+            System.out.println("Reloaded " + loaded + " students from the binary dump, last: "
+                    + reloaded.findStudentById(rows - 1));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static void report(String label, long start, Path file) throws IOException {
+        System.out.printf("%-20s %6d ms %,14d bytes%n", label, (System.nanoTime() - start) / 1_000_000, Files.size(file));
+    }
+}
@@ -0,0 +1,47 @@
+package com.aiiqlabs.collections.app;
+
+import com.aiiqlabs.lib.list.StudentManager;
+import com.aiiqlabs.modal.Student;
+
+// Heap used by the same roster in the ARRAY and COLUMNAR backends.
+// Run with a fixed heap for stable numbers, e.g. -Xms4g -Xmx4g
+public class FootprintComparison {
+
+    private static final String[] NAMES = { "Amit", "Neha", "Raj", "Vijay", "Govind", "Bhanu" };
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        FootprintComparison comparison = new FootprintComparison();
+
+        long array = comparison.measure("ARRAY", count);
+        long columnar = comparison.measure("COLUMNAR", count);
+
+        System.out.println("Students : " + count);
+        System.out.printf("ARRAY    : %,d bytes (%.1f bytes/student)%n", array, (double) array / count);
+        System.out.printf("COLUMNAR : %,d bytes (%.1f bytes/student)%n", columnar, (double) columnar / count);
+        System.out.printf("COLUMNAR uses %.1f%% of ARRAY%n", 100.0 * columnar / array);
+    }
+
+    public long measure(String type, int count) {
+        long before = usedHeap();
+        StudentManager manager = new StudentManager(type);
+        for (int i = 0; i < count; i++) {
+            // new String(...) so every ARRAY student owns its name, as it would
+            // after reading the roster from a file
+            manager.addStudent(new Student(i, new String(NAMES[i % NAMES.length]), 50 + (i % 500) / 10.0));
+        }
+        long after = usedHeap();
+        if (manager.getStudentCount() != count) {
+            throw new IllegalStateException("Roster lost students");
+        }
+        return after - before;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
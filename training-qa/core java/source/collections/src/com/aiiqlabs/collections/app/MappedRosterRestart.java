@@ -0,0 +1,40 @@
+package com.aiiqlabs.collections.app;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import com.aiiqlabs.lib.list.MappedStudentStore;
+import com.aiiqlabs.lib.list.StudentManager;
+import com.aiiqlabs.modal.Student;
+
+// Builds a memory-mapped roster once, then times reopening it
+public class MappedRosterRestart {
+
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        Path file = args.length > 1 ? Paths.get(args[1]) : Files.createTempFile("roster", ".dat");
+        Files.deleteIfExists(file);
+
+        long start = System.nanoTime();
+        try (StudentManager manager = new StudentManager(MappedStudentStore.open(file, count))) {
+            for (int i = 0; i < count; i++) {
+                manager.addStudent(new Student(i, "Student" + (i % 1000), 50 + (i % 500) / 10.0));
+            }
+        }
+        System.out.printf("Built %,d students in %d ms%n", count, (System.nanoTime() - start) / 1_000_000);
+
+        start = System.nanoTime();
+        try (StudentManager manager = new StudentManager(MappedStudentStore.open(file))) {
+            long reopened = System.nanoTime();
+            System.out.printf("Reopened in %.2f ms (%,d students)%n",
+                    (reopened - start) / 1e6, manager.getStudentCount());
+
+            manager.updateMarks(count / 2, 99.5);
+            System.out.println("Student " + (count / 2) + ": " + manager.findStudentById(count / 2));
+            System.out.printf("First find/update after reopen took %.2f ms%n", (System.nanoTime() - reopened) / 1e6);
+        }
+        Files.deleteIfExists(file);
+    }
+}
@@ -0,0 +1,70 @@
+package com.aiiqlabs.collections.app;
+
+import com.aiiqlabs.lib.list.StudentManager;
+import com.aiiqlabs.lib.metrics.StudentMetrics;
+import com.aiiqlabs.lib.queue.StudentRingBufferQueueManager;
+import com.aiiqlabs.modal.Student;
+
+// Latency percentiles of a roster and a queue, and what measuring costs.
+// The metrics are also published over JMX (com.aiiqlabs:type=StudentMetrics).
+// Args: roster size, finds per run
+public class MetricsDemo {
+
+    public static void main(String[] args) {
+        int rosterSize = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int finds = args.length > 1 ? Integer.parseInt(args[1]) : 5_000_000;
+
+        StudentManager manager = new StudentManager("INDEXED");
+        for (int i = 0; i < rosterSize; i++) {
+            manager.addStudent(new Student(i, "Student" + i, 50));
+        }
+        StudentMetrics rosterMetrics = new StudentMetrics("roster").register();
+
+        for (int round = 0; round < 3; round++) {
+            manager.setMetrics(null);
+            long off = findAll(manager, rosterSize, finds);
+            manager.setMetrics(rosterMetrics);
+            rosterMetrics.setEnabled(false);
+            long disabled = findAll(manager, rosterSize, finds);
+            rosterMetrics.setEnabled(true);
+            long on = findAll(manager, rosterSize, finds);
+            System.out.printf("find ns/op: no metrics %.1f, switched off %.1f, measuring %.1f%n",
+                    (double) off / finds, (double) disabled / finds, (double) on / finds);
+        }
+        for (int i = 0; i < 10_000; i++) {
+            manager.updateMarks(i % rosterSize, i % 100);
+        }
+        System.out.println(rosterMetrics.snapshot());
+
+        StudentRingBufferQueueManager queue = new StudentRingBufferQueueManager(1024);
+        StudentMetrics queueMetrics = new StudentMetrics("queue").register();
+        queue.setMetrics(queueMetrics);
+        for (int i = 0; i < 1_000_000; i++) {
+            queue.addStudent(new Student(i, "Student", 50));
+            if (i % 4 != 0) {
+                queue.serveStudent();
+            }
+            if (queue.getQueueSize() > 512) {
+                queue.serveStudents(256, s -> { });
+            }
+        }
+        System.out.println(queueMetrics.snapshot());
+
+        rosterMetrics.unregister();
+        queueMetrics.unregister();
+    }
+
+    private static long findAll(StudentManager manager, int rosterSize, int finds) {
+        long start = System.nanoTime();
+        long found = 0;
+        for (int i = 0; i < finds; i++) {
+            if (manager.findStudentById((int) ((i * 2654435761L) % rosterSize)) != null) {
+                found++;
+            }
+        }
+        if (found != finds) {
+            throw new IllegalStateException("Lost students");
+        }
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,62 @@
+package com.aiiqlabs.collections.app;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import com.aiiqlabs.lib.index.NameIndex;
+import com.aiiqlabs.lib.list.StudentManager;
+import com.aiiqlabs.modal.Student;
+
+// Name prefix and substring search through NameIndex vs a full roster scan.
+// Args: students
+public class NameSearchDemo {
+
+    private static final String[] NAMES = { "Amit", "Neha", "Raj", "Vijay", "Govind", "Bhanu", "Gopal", "Anita" };
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        StudentManager manager = new StudentManager("INDEXED");
+        for (int i = 0; i < count; i++) {
+            // Mostly common first names, plus a long tail of rarer ones
+            String name = NAMES[i % NAMES.length] + (i % 10 == 0 ? " " + (i / 10) : "");
+            manager.addStudent(new Student(i, name, 50));
+        }
+        NameIndex index = NameIndex.attach(manager);
+        System.out.printf("%,d students, %,d distinct names, index %,d bytes%n",
+                index.size(), index.getDistinctNames(), index.footprintBytes());
+
+        for (String prefix : new String[] { "Go", "Raj 1234", "Zed" }) {
+            long start = System.nanoTime();
+            int found = index.findByNamePrefix(prefix).size();
+            long indexed = System.nanoTime() - start;
+            start = System.nanoTime();
+            int scanned = scan(manager, prefix, true).size();
+            long scan = System.nanoTime() - start;
+            System.out.printf("prefix    %-12s %,9d matches  index %,10d us  scan %,10d us  agree=%b%n",
+                    "\"" + prefix + "\"", found, indexed / 1000, scan / 1000, found == scanned);
+        }
+        for (String part : new String[] { "ind", "99999", "xyz" }) {
+            long start = System.nanoTime();
+            int found = index.findByNameContaining(part).size();
+            long indexed = System.nanoTime() - start;
+            start = System.nanoTime();
+            int scanned = scan(manager, part, false).size();
+            long scan = System.nanoTime() - start;
+            System.out.printf("substring %-12s %,9d matches  index %,10d us  scan %,10d us  agree=%b%n",
+                    "\"" + part + "\"", found, indexed / 1000, scan / 1000, found == scanned);
+        }
+    }
+
+    private static List<Student> scan(StudentManager manager, String query, boolean prefix) {
+        String q = query.toLowerCase(Locale.ROOT);
+        List<Student> matches = new ArrayList<>();
+        manager.forEachStudent(s -> {
+            String name = s.getName().toLowerCase(Locale.ROOT);
+            if (prefix ? name.startsWith(q) : name.contains(q)) {
+                matches.add(s);
+            }
+        });
+        return matches;
+    }
+}
@@ -0,0 +1,104 @@
+package com.aiiqlabs.collections.app;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import com.aiiqlabs.lib.io.RosterDelta;
+import com.aiiqlabs.lib.io.RosterFormat;
+import com.aiiqlabs.lib.io.RosterLoader;
+import com.aiiqlabs.lib.io.StudentExporter;
+import com.aiiqlabs.lib.list.StudentManager;
+import com.aiiqlabs.modal.Student;
+
+// Checks that after applyTo a roster holds exactly the students that loading
+// the incoming roster into an empty one of the same type gives - repeated ids
+// on either side included - comparing the students themselves rather than
+// through another RosterDelta. Prints each check and exits with 1 if any failed.
+public class RosterDeltaCheck {
+
+    private static int failed;
+
+    public static void main(String[] args) throws IOException {
+        for (String type : new String[] { "ARRAY", "LINKED", "AUTO", "INDEXED", "SNAPSHOT" }) {
+            check(type, "repeated current id against one incoming row",
+                    rows(1, "A", 5, 1, "A", 7), rows(1, "A", 7));
+            check(type, "repeated incoming id", rows(1, "A", 5, 2, "B", 1), rows(1, "A", 6, 1, "A", 8, 2, "B", 1));
+            check(type, "repeated incoming id, unchanged first", rows(1, "A", 5), rows(1, "A", 5, 1, "A", 9));
+            check(type, "repeated incoming id, renamed", rows(1, "A", 5), rows(1, "B", 6, 1, "C", 7));
+            check(type, "repeats on both sides", rows(1, "A", 5, 1, "A", 6, 3, "C", 1),
+                    rows(3, "C", 2, 1, "A", 6, 1, "A", 6, 1, "D", 6));
+            Random random = new Random(type.hashCode());
+            for (int round = 0; round < 20; round++) {
+                check(type, "random churn " + round, randomRows(random), randomRows(random));
+            }
+        }
+        System.out.println(failed == 0 ? "All checks passed" : failed + " checks failed");
+        System.exit(failed == 0 ? 0 : 1);
+    }
+
+    // Applies the delta read from a file of the incoming rows and compares
+    // with those rows loaded into a fresh roster
+    private static void check(String type, String what, List<Student> current, List<Student> incoming)
+            throws IOException {
+        StudentManager live = load(type, current);
+        StudentManager file = load("ARRAY", incoming);
+        StudentManager expected = load(type, incoming);
+        Path path = Files.createTempFile("roster", ".bin");
+        try {
+            try (FileChannel out = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                new StudentExporter(RosterFormat.BINARY).export(file, out);
+            }
+            RosterDelta.between(live, new RosterLoader(), path, RosterFormat.BINARY).applyTo(live);
+        } finally {
+            Files.deleteIfExists(path);
+        }
+        boolean passed = contents(live).equals(contents(expected));
+        if (!passed || !what.startsWith("random")) {
+            System.out.println((passed ? "ok     " : "FAILED ") + type + ": " + what);
+        }
+        if (!passed) {
+            System.out.println("       expected " + contents(expected) + "\n       got      " + contents(live));
+            failed++;
+        }
+    }
+
+    private static StudentManager load(String type, List<Student> rows) {
+        StudentManager manager = new StudentManager(type);
+        for (Student s : rows) {
+            manager.addStudent(new Student(s.getId(), s.getName(), s.getMarks()));
+        }
+        return manager;
+    }
+
+    private static List<String> contents(StudentManager manager) {
+        List<String> rows = new ArrayList<>();
+        manager.forEachStudent(s -> rows.add(s.getId() + "," + s.getName() + "," + s.getMarks()));
+        Collections.sort(rows);
+        return rows;
+    }
+
+    private static List<Student> rows(Object... values) {
+        List<Student> rows = new ArrayList<>();
+        for (int i = 0; i < values.length; i += 3) {
+            rows.add(new Student((Integer) values[i], (String) values[i + 1], ((Integer) values[i + 2]).doubleValue()));
+        }
+        return rows;
+    }
+
+    // Few enough ids that they often repeat, few enough names and marks that rows often match
+    private static List<Student> randomRows(Random random) {
+        List<Student> rows = new ArrayList<>();
+        int count = random.nextInt(40);
+        for (int i = 0; i < count; i++) {
+            rows.add(new Student(random.nextInt(30), "N" + random.nextInt(2), random.nextInt(3)));
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,73 @@
+package com.aiiqlabs.collections.app;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import com.aiiqlabs.lib.io.RosterDelta;
+import com.aiiqlabs.lib.io.RosterFormat;
+import com.aiiqlabs.lib.io.RosterLoader;
+import com.aiiqlabs.lib.io.StudentExporter;
+import com.aiiqlabs.lib.list.StudentManager;
+import com.aiiqlabs.modal.Student;
+
+// Nightly sync of a live roster from tonight's file, where a small share of
+// students joined, left or got new marks: rebuilding the roster from the file
+// vs applying the RosterDelta between the live roster and the file.
+// Args: roster size, percent of students changed, backend type
+public class RosterSyncDemo {
+
+    public static void main(String[] args) throws IOException {
+        int rosterSize = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        double changedPercent = args.length > 1 ? Double.parseDouble(args[1]) : 1;
+        String type = args.length > 2 ? args[2] : "INDEXED";
+
+        StudentManager live = new StudentManager(type);
+        StudentManager tonight = new StudentManager("INDEXED");
+        Random random = new Random(7);
+        for (int i = 0; i < rosterSize; i++) {
+            live.addStudent(new Student(i, "Student" + i, i % 101));
+            double r = random.nextDouble() * 100;
+            if (r < changedPercent / 3) {
+                continue;                                                       // left
+            }
+            tonight.addStudent(new Student(i, "Student" + i, r < changedPercent * 2 / 3 ? 100 - i % 101 : i % 101));
+        }
+        int joined = (int) (rosterSize * changedPercent / 300);
+        for (int i = 0; i < joined; i++) {
+            tonight.addStudent(new Student(rosterSize + i, "Student" + (rosterSize + i), 50));
+        }
+
+        Path file = Files.createTempFile("roster", ".bin");
+        try {
+            try (FileChannel out = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                new StudentExporter(RosterFormat.BINARY).export(tonight, out);
+            }
+            RosterLoader loader = new RosterLoader();
+
+            long start = System.nanoTime();
+            StudentManager rebuilt = new StudentManager(type);
+            loader.load(file, RosterFormat.BINARY, rebuilt);
+            long rebuild = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            RosterDelta delta = RosterDelta.between(live, loader, file, RosterFormat.BINARY);
+            long compare = System.nanoTime() - start;
+            start = System.nanoTime();
+            int applied = delta.applyTo(live);
+            long apply = System.nanoTime() - start;
+
+            System.out.printf("%s roster of %,d, delta: %s%n", type, rosterSize, delta);
+            System.out.printf("Rebuild from file:  %8.1f ms%n", rebuild / 1e6);
+            System.out.printf("Compare with file:  %8.1f ms%n", compare / 1e6);
+            System.out.printf("Apply %,9d changes: %6.1f ms%n", applied, apply / 1e6);
+            System.out.println("Live roster matches the file afterwards: "
+                    + RosterDelta.between(live, rebuilt).isEmpty());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.aiiqlabs.collections.app;
+
+import java.util.concurrent.TimeUnit;
+
+import com.aiiqlabs.lib.queue.StudentPriorityQueueManager;
+import com.aiiqlabs.lib.queue.StudentQueueManager;
+import com.aiiqlabs.lib.queue.StudentServingEngine;
+import com.aiiqlabs.modal.Student;
+
+// Serving students whose handling blocks for a while (a simulated 10 ms call
+// to another service), one at a time vs through StudentServingEngine.
+// Args: students, concurrency, handler millis
+public class ServingEngineDemo {
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        long millis = args.length > 2 ? Long.parseLong(args[2]) : 10;
+        StudentServingEngine.StudentHandler handler = s -> Thread.sleep(millis);
+
+        // One at a time takes count * millis; time a slice of it
+        int sample = Math.min(count, 200);
+        StudentQueueManager queue = new StudentQueueManager();
+        for (int i = 0; i < sample; i++) {
+            queue.addStudent(new Student(i, "Student" + i, i % 100));
+        }
+        long start = System.nanoTime();
+        for (Student s = queue.serveStudent(); s != null; s = queue.serveStudent()) {
+            handler.handle(s);
+        }
+        double sequential = sample / ((System.nanoTime() - start) / 1e9);
+        System.out.printf("sequential:      %,10.0f students/sec%n", sequential);
+
+        StudentServingEngine fifo = new StudentServingEngine(new StudentQueueManager(), handler,
+                concurrency, 2 * concurrency);
+        run("fifo engine:", fifo, count, sequential);
+
+        StudentServingEngine priority = new StudentServingEngine(new StudentPriorityQueueManager(), handler,
+                concurrency, 2 * concurrency);
+        run("priority engine:", priority, count, sequential);
+    }
+
+    private static void run(String label, StudentServingEngine engine, int count, double sequential)
+            throws InterruptedException {
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            engine.submit(new Student(i, "Student" + i, i % 100));
+        }
+        engine.shutdown();
+        engine.awaitTermination(1, TimeUnit.MINUTES);
+        double rate = count / ((System.nanoTime() - start) / 1e9);
+        System.out.printf("%-16s %,10.0f students/sec (%.0fx)%n", label, rate, rate / sequential);
+        System.out.println("  " + engine.statsSummary());
+    }
+}
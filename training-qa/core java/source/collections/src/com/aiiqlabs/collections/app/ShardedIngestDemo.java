@@ -0,0 +1,76 @@
+package com.aiiqlabs.collections.app;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.aiiqlabs.lib.list.ShardedStudentStore;
+import com.aiiqlabs.lib.list.StudentManager;
+import com.aiiqlabs.modal.Student;
+
+// Ingest threads pushing marks updates in batches into one roster: CONCURRENT
+// (every thread updates the shared map) vs SHARDED with 1, 2, 4... shard
+// threads (each batch is split and handed to the shards that own the ids).
+// SHARDED only scales while there are spare cores for the shard threads.
+// Args: roster size, batch size, seconds per run
+public class ShardedIngestDemo {
+
+    public static void main(String[] args) throws InterruptedException {
+        int rosterSize = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int batchSize = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+        int cores = Runtime.getRuntime().availableProcessors();
+        int ingestThreads = Math.max(1, cores / 2);
+
+        System.out.printf("%d cores, %d ingest threads, batches of %,d%n", cores, ingestThreads, batchSize);
+        System.out.printf("%-14s %15s%n", "Roster", "updates/sec");
+        long concurrent = run(new StudentManager("CONCURRENT"), rosterSize, ingestThreads, batchSize, seconds);
+        System.out.printf("%-14s %,15d%n", "CONCURRENT", concurrent);
+        for (int shards = 1; shards <= Math.max(cores, 1); shards *= 2) {
+            StudentManager manager = new StudentManager(new ShardedStudentStore(shards));
+            long updates = run(manager, rosterSize, ingestThreads, batchSize, seconds);
+            System.out.printf("%-14s %,15d%n", "SHARDED x" + shards, updates);
+        }
+    }
+
+    private static long run(StudentManager manager, int rosterSize, int threads, int batchSize, int seconds)
+            throws InterruptedException {
+        for (int i = 0; i < rosterSize; i++) {
+            manager.addStudent(new Student(i, "Student" + i, 50));
+        }
+        LongAdder updates = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                int[] ids = new int[batchSize];
+                double[] marks = new double[batchSize];
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                while (System.nanoTime() < deadline) {
+                    for (int i = 0; i < batchSize; i++) {
+                        ids[i] = random.nextInt(rosterSize);
+                        marks[i] = random.nextInt(1000) / 10.0;
+                    }
+                    manager.updateMarks(ids, marks);
+                    updates.add(batchSize);
+                }
+            });
+            workers[t].start();
+        }
+        long began = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - began;
+        manager.close();
+        return updates.sum() * 1_000_000_000L / elapsed;
+    }
+}
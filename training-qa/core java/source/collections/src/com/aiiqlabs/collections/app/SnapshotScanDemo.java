@@ -0,0 +1,54 @@
+package com.aiiqlabs.collections.app;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.aiiqlabs.lib.list.StudentManager;
+import com.aiiqlabs.lib.list.StudentSnapshot;
+import com.aiiqlabs.modal.Student;
+
+// Report scans running next to a writer. VECTOR holds its lock for every
+// whole scan, so the writer stalls; SNAPSHOT scans an immutable version and
+// the writer keeps going.
+// Args: roster size, seconds per run
+public class SnapshotScanDemo {
+
+    public static void main(String[] args) throws InterruptedException {
+        int rosterSize = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+        System.out.printf("%-10s %15s %12s%n", "Type", "updates/sec", "scans/sec");
+        for (String type : new String[] { "VECTOR", "SNAPSHOT" }) {
+            StudentManager manager = new StudentManager(type);
+            for (int i = 0; i < rosterSize; i++) {
+                manager.addStudent(new Student(i, "Student" + i, 50));
+            }
+            AtomicBoolean running = new AtomicBoolean(true);
+            long[] updates = { 0 };
+            Thread writer = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (running.get()) {
+                    manager.updateMarks(random.nextInt(rosterSize), random.nextInt(1000) / 10.0);
+                    updates[0]++;
+                }
+            });
+            writer.start();
+
+            long scans = 0;
+            long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+            while (System.nanoTime() < deadline) {
+                double[] total = { 0 };
+                if (type.equals("SNAPSHOT")) {
+                    StudentSnapshot snapshot = manager.snapshot();
+                    snapshot.forEachStudent(s -> total[0] += s.getMarks());
+                } else {
+                    manager.forEachStudent(s -> total[0] += s.getMarks());
+                }
+                scans++;
+            }
+            running.set(false);
+            writer.join();
+            System.out.printf("%-10s %,15d %,12.1f%n", type, updates[0] / seconds, (double) scans / seconds);
+        }
+    }
+}
@@ -102,7 +102,7 @@ public class Startup {
     }
     
     public void studentsDynamic() {
-    	 StudentManager manager = new StudentManager("ARRAY"); // Try LINKED or VECTOR
+    	 StudentManager manager = new StudentManager("ARRAY"); // Try LINKED, VECTOR or INDEXED
 
          manager.addStudent(new Student(1, "Amit", 85.5));
          manager.addStudent(new Student(2, "Neha", 90.0));
@@ -0,0 +1,47 @@
+package com.aiiqlabs.collections.app;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import com.aiiqlabs.lib.list.StudentManager;
+import com.aiiqlabs.lib.stats.MarksStatistics;
+import com.aiiqlabs.lib.stats.MarksSummary;
+import com.aiiqlabs.modal.Student;
+
+// Sequential vs parallel marks statistics on the same roster, per pool size.
+// Args: students
+public class StatisticsDemo {
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        StudentManager manager = new StudentManager("COLUMNAR");
+        manager.ensureCapacity(count);
+        for (int i = 0; i < count; i++) {
+            manager.addStudent(new Student(i, "Student", (i * 7919L % 100_001) / 1000.0));
+        }
+        double[] marks = manager.getAllMarks();
+
+        MarksSummary expected = timed("sequential", MarksStatistics.sequential(), marks);
+        long[] expectedHistogram = MarksStatistics.sequential().histogram(marks, 0, 100, 10);
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= Math.max(cores, 2); threads *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            MarksStatistics parallel = new MarksStatistics(pool);
+            MarksSummary summary = timed("parallel x" + threads, parallel, marks);
+            boolean same = summary.equals(expected)
+                    && Arrays.equals(parallel.histogram(marks, 0, 100, 10), expectedHistogram);
+            System.out.println("  identical to sequential: " + same);
+            pool.shutdown();
+        }
+        System.out.println(expected);
+        System.out.println("Histogram [0,100] x10: " + Arrays.toString(expectedHistogram));
+    }
+
+    private static MarksSummary timed(String label, MarksStatistics statistics, double[] marks) {
+        statistics.summarize(marks);        // warm up
+        long start = System.nanoTime();
+        MarksSummary summary = statistics.summarize(marks);
+        System.out.printf("%-14s %6d ms%n", label, (System.nanoTime() - start) / 1_000_000);
+        return summary;
+    }
+}
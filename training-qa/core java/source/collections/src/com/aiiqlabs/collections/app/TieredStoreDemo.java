@@ -0,0 +1,49 @@
+package com.aiiqlabs.collections.app;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import com.aiiqlabs.lib.list.StudentManager;
+import com.aiiqlabs.lib.list.TieredStudentStore;
+import com.aiiqlabs.modal.Student;
+
+// A roster on disk with a small on-heap hot tier, under a skewed workload
+// where a few students get most of the finds and updates.
+// Args: students, heap budget in MB, operations
+public class TieredStoreDemo {
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        long budget = (args.length > 1 ? Long.parseLong(args[1]) : 4) << 20;
+        int operations = args.length > 2 ? Integer.parseInt(args[2]) : 5_000_000;
+
+        Path file = Files.createTempFile("tiered-roster", ".dat");
+        TieredStudentStore store = TieredStudentStore.open(file, budget);
+        try (StudentManager manager = new StudentManager(store)) {
+            manager.ensureCapacity(count);
+            for (int i = 0; i < count; i++) {
+                manager.addStudent(new Student(i, "Student" + i, 50));
+            }
+
+            Random random = new Random(42);
+            long start = System.nanoTime();
+            for (int i = 0; i < operations; i++) {
+                // Cubing a uniform value crowds the picks onto low ids
+                double u = random.nextDouble();
+                int id = (int) (u * u * u * count);
+                if (i % 10 == 0) {
+                    manager.updateMarks(id, i % 100);
+                } else {
+                    manager.findStudentById(id);
+                }
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%,d students on disk, %,d ops in %.2f s (%,.0f ops/sec)%n",
+                    count, operations, seconds, operations / seconds);
+            System.out.println(store.statsSummary());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.aiiqlabs.collections.app;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.aiiqlabs.lib.io.StudentWriteAheadLog;
+import com.aiiqlabs.lib.list.StudentManager;
+import com.aiiqlabs.modal.Student;
+
+// Durable updates from several threads: fsyncs are shared between writers, so
+// syncs stay well below records. Reopens the log afterwards and checks the roster.
+// Args: directory, threads, updates per thread
+public class WalDemo {
+
+    public static void main(String[] args) throws Exception {
+        Path directory = args.length > 0 ? Paths.get(args[0]) : Files.createTempDirectory("student-wal");
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int updates = args.length > 2 ? Integer.parseInt(args[2]) : 2_000;
+
+        StudentManager manager = new StudentManager("CONCURRENT");
+        try (StudentWriteAheadLog wal = StudentWriteAheadLog.open(directory, manager)) {
+            System.out.println("Recovered " + manager.getStudentCount() + " students from " + directory);
+            for (int i = 0; i < 1_000; i++) {
+                manager.addStudent(new Student(i, "Student" + i, 0));
+            }
+            wal.checkpoint();
+
+            long before = wal.getSyncCount();
+            long beforeRecords = wal.getRecordCount();
+            long start = System.nanoTime();
+            Thread[] workers = new Thread[threads];
+            for (int t = 0; t < threads; t++) {
+                workers[t] = new Thread(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < updates; i++) {
+                        manager.updateMarks(random.nextInt(1_000), random.nextInt(1000) / 10.0);
+                    }
+                });
+                workers[t].start();
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            long records = wal.getRecordCount() - beforeRecords;
+            long syncs = wal.getSyncCount() - before;
+            System.out.printf("%,d durable updates in %.2f s (%,.0f ops/sec), %,d fsyncs (%.1f records per fsync)%n",
+                    records, seconds, records / seconds, syncs, (double) records / Math.max(syncs, 1));
+        }
+
+        StudentManager reopened = new StudentManager("CONCURRENT");
+        try (StudentWriteAheadLog wal = StudentWriteAheadLog.open(directory, reopened)) {
+            System.out.println("Reopened roster matches: " + sameRoster(manager, reopened)
+                    + " (" + wal.getRecordCount() + " records since reopening)");
+        }
+    }
+
+    private static boolean sameRoster(StudentManager expected, StudentManager actual) {
+        if (expected.getStudentCount() != actual.getStudentCount()) {
+            return false;
+        }
+        boolean[] same = { true };
+        expected.forEachStudent(s -> {
+            Student other = actual.findStudentById(s.getId());
+            if (other == null || !other.getName().equals(s.getName())
+                    || Double.compare(other.getMarks(), s.getMarks()) != 0) {
+                same[0] = false;
+            }
+        });
+        return same[0];
+    }
+}
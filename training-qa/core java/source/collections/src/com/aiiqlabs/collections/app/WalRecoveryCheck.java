@@ -0,0 +1,152 @@
+package com.aiiqlabs.collections.app;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.aiiqlabs.lib.io.StudentWriteAheadLog;
+import com.aiiqlabs.lib.list.StudentManager;
+import com.aiiqlabs.modal.Student;
+
+// Checks that the write-ahead log brings a roster back after single, bulk and
+// batch changes, a checkpoint and a torn last record; that a bulk call costs
+// one fsync; that once the log fails no change reaches the roster; and that
+// list rosters are refused. Prints each check and exits with 1 if any failed.
+public class WalRecoveryCheck {
+
+    private static int failed;
+
+    public static void main(String[] args) throws IOException {
+        recovery();
+        failure();
+        refusesListRosters();
+        System.out.println(failed == 0 ? "All checks passed" : failed + " checks failed");
+        System.exit(failed == 0 ? 0 : 1);
+    }
+
+    private static void recovery() throws IOException {
+        Path directory = Files.createTempDirectory("student-wal");
+        StudentManager manager = new StudentManager("INDEXED");
+        try (StudentWriteAheadLog wal = StudentWriteAheadLog.open(directory, manager)) {
+            for (int i = 0; i < 1_000; i++) {
+                manager.addStudent(new Student(i, "Student" + i, i % 101));
+            }
+            manager.updateMarks(7, 99.5);
+            manager.removeStudentById(8);
+            wal.checkpoint();
+
+            int[] ids = new int[500];
+            double[] marks = new double[500];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = i * 2;
+                marks[i] = 42;
+            }
+            long syncs = wal.getSyncCount();
+            manager.updateMarks(ids, marks);
+            check("a bulk update of 500 students costs one fsync", wal.getSyncCount() - syncs == 1);
+
+            manager.removeStudentsByIds(new int[] { 1, 3, 5, 1_000_000 });
+            List<Student> adds = new ArrayList<>();
+            adds.add(new Student(2_000, "Newcomer", 60));
+            adds.add(new Student(10, "Renamed", 61));
+            manager.applyChanges(new int[] { 11 }, new int[] { 12, 8 }, new double[] { 13, 14 }, adds);
+        }
+        tearLastRecord(directory);
+
+        StudentManager reopened = new StudentManager("INDEXED");
+        try (StudentWriteAheadLog wal = StudentWriteAheadLog.open(directory, reopened)) {
+            check("recovered roster matches after a checkpoint and a torn tail",
+                    wal.getFailure() == null && sameRoster(manager, reopened));
+        }
+    }
+
+    private static void failure() throws IOException {
+        Path directory = Files.createTempDirectory("student-wal");
+        StudentManager manager = new StudentManager("CONCURRENT");
+        try (StudentWriteAheadLog wal = StudentWriteAheadLog.open(directory, manager)) {
+            for (int i = 0; i < 10; i++) {
+                manager.addStudent(new Student(i, "Student" + i, 50));
+            }
+            // An interrupt closes the log's channel under the fsync, as a failing disk would
+            Thread.currentThread().interrupt();
+            boolean rejected = false;
+            try {
+                manager.updateMarks(1, 99);
+            } catch (UncheckedIOException e) {
+                rejected = true;
+            }
+            Thread.interrupted();
+            check("the change whose fsync failed is rejected", rejected && wal.getFailure() != null);
+            check("and not applied", manager.findStudentById(1).getMarks() == 50);
+
+            rejected = false;
+            try {
+                manager.addStudent(new Student(10, "Late", 1));
+            } catch (UncheckedIOException e) {
+                rejected = true;
+            }
+            check("later changes are rejected before they are applied",
+                    rejected && manager.getStudentCount() == 10);
+        }
+
+        StudentManager reopened = new StudentManager("CONCURRENT");
+        try (StudentWriteAheadLog wal = StudentWriteAheadLog.open(directory, reopened)) {
+            check("reopened roster matches the roster the failed log left",
+                    wal.getFailure() == null && sameRoster(manager, reopened));
+        }
+    }
+
+    private static void refusesListRosters() throws IOException {
+        boolean refused = false;
+        try {
+            StudentWriteAheadLog.open(Files.createTempDirectory("student-wal"), new StudentManager("ARRAY")).close();
+        } catch (IllegalArgumentException e) {
+            refused = true;
+        }
+        check("an ARRAY roster is refused", refused);
+    }
+
+    // Half a record at the end of the newest segment, as a crash mid-write leaves
+    private static void tearLastRecord(Path directory) throws IOException {
+        Path newest = null;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "wal-*.log")) {
+            for (Path file : files) {
+                if (newest == null || file.getFileName().toString().compareTo(newest.getFileName().toString()) > 0) {
+                    newest = file;
+                }
+            }
+        }
+        try (FileChannel channel = FileChannel.open(newest, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[] { 30, 0, 0, 0, 1, 2 }));
+        }
+    }
+
+    private static boolean sameRoster(StudentManager expected, StudentManager actual) {
+        if (expected.getStudentCount() != actual.getStudentCount()) {
+            return false;
+        }
+        boolean[] same = { true };
+        expected.forEachStudent(s -> {
+            Student other = actual.findStudentById(s.getId());
+            if (other == null || !other.getName().equals(s.getName())
+                    || Double.compare(other.getMarks(), s.getMarks()) != 0) {
+                same[0] = false;
+            }
+        });
+        return same[0];
+    }
+
+    private static void check(String what, boolean passed) {
+        System.out.println((passed ? "ok     " : "FAILED ") + what);
+        if (!passed) {
+            failed++;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.aiiqlabs.collections.benchmark;
+
+import java.util.function.IntFunction;
+import java.util.function.IntToLongFunction;
+
+// One operation on one implementation, e.g. "list.find" on "COLUMNAR"
+public class Benchmark {
+
+    // State for one measurement iteration; run() is the timed operation
+    public interface Trial {
+        // op numbers are distinct across threads: 0, 1, 2, ... in no particular order
+        Object run(long op);
+    }
+
+    private final String operation;
+    private final String target;
+    private final IntFunction<Trial> setup;
+    private final boolean mutating;
+    private final boolean concurrent;
+    private final IntToLongFunction opsLimit;
+
+    // mutating: the roster changes shape, so every iteration gets a fresh one.
+    // concurrent: safe to run from several threads at once.
+    // opsLimit: how many ops an iteration may run for a given roster size.
+    public Benchmark(String operation, String target, IntFunction<Trial> setup,
+            boolean mutating, boolean concurrent, IntToLongFunction opsLimit) {
+        this.operation = operation;
+        this.target = target;
+        this.setup = setup;
+        this.mutating = mutating;
+        this.concurrent = concurrent;
+        this.opsLimit = opsLimit;
+    }
+
+    public Benchmark(String operation, String target, IntFunction<Trial> setup, boolean mutating, boolean concurrent) {
+        this(operation, target, setup, mutating, concurrent, size -> Long.MAX_VALUE);
+    }
+
+    public String getName() {
+        return operation + ":" + target;
+    }
+
+    public String getOperation() { return operation; }
+    public String getTarget() { return target; }
+    public boolean isMutating() { return mutating; }
+    public boolean isConcurrent() { return concurrent; }
+
+    Trial setUp(int size) {
+        return setup.apply(size);
+    }
+
+    long opsLimit(int size) {
+        return opsLimit.applyAsLong(size);
+    }
+}
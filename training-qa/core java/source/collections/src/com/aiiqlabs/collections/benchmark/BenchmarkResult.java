@@ -0,0 +1,55 @@
+package com.aiiqlabs.collections.benchmark;
+
+// Measured iterations of one benchmark at one roster size and thread count
+public class BenchmarkResult {
+
+    private final Benchmark benchmark;
+    private final int size;
+    private final int threads;
+    private final double opsPerSecond;
+    private final double error;
+    private final double bytesPerOp;
+    private final long gcCount;
+    private final long gcMillis;
+
+    BenchmarkResult(Benchmark benchmark, int size, int threads, double opsPerSecond, double error,
+            double bytesPerOp, long gcCount, long gcMillis) {
+        this.benchmark = benchmark;
+        this.size = size;
+        this.threads = threads;
+        this.opsPerSecond = opsPerSecond;
+        this.error = error;
+        this.bytesPerOp = bytesPerOp;
+        this.gcCount = gcCount;
+        this.gcMillis = gcMillis;
+    }
+
+    public Benchmark getBenchmark() { return benchmark; }
+    public int getSize() { return size; }
+    public int getThreads() { return threads; }
+    // Mean over the measured iterations
+    public double getOpsPerSecond() { return opsPerSecond; }
+    // Standard deviation over the measured iterations
+    public double getError() { return error; }
+    // Heap allocated by the benchmark threads, per operation
+    public double getBytesPerOp() { return bytesPerOp; }
+    // Collections while measuring, across all collectors
+    public long getGcCount() { return gcCount; }
+    public long getGcMillis() { return gcMillis; }
+
+    static String header() {
+        return String.format("%-14s %-30s %10s %7s %16s %12s %10s %4s %7s",
+                "Operation", "Target", "Size", "Threads", "ops/sec", "error", "B/op", "GCs", "GC ms");
+    }
+
+    public String toCsv() {
+        return String.format("%s,%s,%d,%d,%.1f,%.1f,%.2f,%d,%d", benchmark.getOperation(), benchmark.getTarget(),
+                size, threads, opsPerSecond, error, bytesPerOp, gcCount, gcMillis);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-14s %-30s %,10d %7d %,16.0f %,12.0f %,10.1f %4d %7d", benchmark.getOperation(),
+                benchmark.getTarget(), size, threads, opsPerSecond, error, bytesPerOp, gcCount, gcMillis);
+    }
+}
@@ -0,0 +1,192 @@
+package com.aiiqlabs.collections.benchmark;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+
+// Runs a benchmark the way JMH would: warm-up iterations to let the JIT
+// settle, then timed iterations on worker threads started together. Results
+// are consumed so the JIT cannot drop the operation, and allocation is read
+// from the per-thread counters of the HotSpot ThreadMXBean.
+public class BenchmarkRunner {
+
+    private static volatile Object sink;   // keeps results alive
+
+    private final int warmupIterations;
+    private final int measurementIterations;
+    private final long iterationNanos;
+    private final com.sun.management.ThreadMXBean threadBean;
+
+    public BenchmarkRunner(int warmupIterations, int measurementIterations, long iterationMillis) {
+        this.warmupIterations = warmupIterations;
+        this.measurementIterations = measurementIterations;
+        this.iterationNanos = iterationMillis * 1_000_000L;
+        this.threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    public BenchmarkResult run(Benchmark benchmark, int size, int threads) throws InterruptedException {
+        Benchmark.Trial trial = null;
+        for (int i = 0; i < warmupIterations; i++) {
+            trial = trialFor(benchmark, size, trial);
+            iterate(benchmark, trial, size, threads);
+        }
+
+        double[] opsPerSecond = new double[measurementIterations];
+        long ops = 0;
+        long allocated = 0;
+        long gcCount = 0;
+        long gcMillis = 0;
+        for (int i = 0; i < measurementIterations; i++) {
+            trial = trialFor(benchmark, size, trial);
+            long gcCountBefore = gcCount();
+            long gcMillisBefore = gcMillis();
+            Iteration iteration = iterate(benchmark, trial, size, threads);
+            gcCount += gcCount() - gcCountBefore;
+            gcMillis += gcMillis() - gcMillisBefore;
+            opsPerSecond[i] = iteration.ops * 1e9 / Math.max(iteration.nanos, 1);
+            ops += iteration.ops;
+            allocated += iteration.allocatedBytes;
+        }
+
+        double mean = 0;
+        for (double value : opsPerSecond) {
+            mean += value;
+        }
+        mean /= opsPerSecond.length;
+        double variance = 0;
+        for (double value : opsPerSecond) {
+            variance += (value - mean) * (value - mean);
+        }
+        double error = opsPerSecond.length > 1 ? Math.sqrt(variance / (opsPerSecond.length - 1)) : 0;
+        return new BenchmarkResult(benchmark, size, threads, mean, error,
+                ops == 0 ? 0 : (double) allocated / ops, gcCount, gcMillis);
+    }
+
+    // Read-only benchmarks keep their roster between iterations, since
+    // building a 10M roster can take longer than measuring it
+    private Benchmark.Trial trialFor(Benchmark benchmark, int size, Benchmark.Trial previous) {
+        if (previous != null && !benchmark.isMutating()) {
+            return previous;
+        }
+        return benchmark.setUp(size);
+    }
+
+    private Iteration iterate(Benchmark benchmark, Benchmark.Trial trial, int size, int threads)
+            throws InterruptedException {
+        long limit = benchmark.opsLimit(size);
+        CountDownLatch start = new CountDownLatch(1);
+        Worker[] workers = new Worker[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Worker(trial, t, threads, limit, start);
+            workers[t].start();
+        }
+        long began = System.nanoTime();
+        long deadline = began + iterationNanos;
+        for (Worker worker : workers) {
+            worker.deadline = deadline;
+        }
+        start.countDown();
+
+        Iteration iteration = new Iteration();
+        long finished = began;
+        for (Worker worker : workers) {
+            worker.join();
+            if (worker.failure != null) {
+                throw new IllegalStateException(benchmark.getName() + " failed", worker.failure);
+            }
+            iteration.ops += worker.ops;
+            iteration.allocatedBytes += worker.allocatedBytes;
+            finished = Math.max(finished, worker.finished);
+        }
+        iteration.nanos = finished - began;
+        return iteration;
+    }
+
+    private long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(gc.getCollectionCount(), 0);
+        }
+        return count;
+    }
+
+    private long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(gc.getCollectionTime(), 0);
+        }
+        return millis;
+    }
+
+    private static class Iteration {
+        long ops;
+        long nanos;
+        long allocatedBytes;
+    }
+
+    private class Worker extends Thread {
+
+        private final Benchmark.Trial trial;
+        private final int index;
+        private final int threads;
+        private final long limit;
+        private final CountDownLatch start;
+        volatile long deadline;
+        long ops;
+        long finished;
+        long allocatedBytes;
+        Throwable failure;
+
+        Worker(Benchmark.Trial trial, int index, int threads, long limit, CountDownLatch start) {
+            super("benchmark-" + index);
+            this.trial = trial;
+            this.index = index;
+            this.threads = threads;
+            this.limit = limit;
+            this.start = start;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                start.await();
+                measure();
+            } catch (Throwable e) {
+                failure = e;
+            }
+        }
+
+        // Checks the clock after batches that double in length while they stay
+        // short, so fast operations are not dominated by System.nanoTime() and
+        // slow ones (a 10M linked list scan) do not overrun the iteration
+        private void measure() {
+            long allocatedBefore = threadBean.getCurrentThreadAllocatedBytes();
+            long k = 0;
+            int batch = 1;
+            Object last = null;
+            long now = System.nanoTime();
+            outer:
+            while (now < deadline) {
+                long batchStart = now;
+                for (int i = 0; i < batch; i++) {
+                    long op = k * threads + index;
+                    if (op >= limit) {
+                        break outer;
+                    }
+                    last = trial.run(op);
+                    k++;
+                }
+                now = System.nanoTime();
+                if (batch < 1024 && now - batchStart < 100_000) {
+                    batch <<= 1;
+                }
+            }
+            finished = System.nanoTime();
+            allocatedBytes = threadBean.getCurrentThreadAllocatedBytes() - allocatedBefore;
+            ops = k;
+            sink = last;
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.aiiqlabs.collections.benchmark;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+import com.aiiqlabs.lib.list.StudentManager;
+import com.aiiqlabs.lib.list.StudentManagerArrayList;
+import com.aiiqlabs.lib.list.StudentManagerLinkedList;
+import com.aiiqlabs.lib.list.StudentManagerVector;
+import com.aiiqlabs.lib.queue.BackpressurePolicy;
+import com.aiiqlabs.lib.queue.StudentArrayQueueManager;
+import com.aiiqlabs.lib.queue.StudentPriorityQueueManager;
+import com.aiiqlabs.lib.queue.StudentQueueManager;
+import com.aiiqlabs.lib.queue.StudentRingBufferQueueManager;
+import com.aiiqlabs.modal.Student;
+
+// Benchmark suite for the list and queue implementations.
+//
+//   list.add / list.find / list.update / list.remove / list.iterate on every
+//   StudentManager type and the three StudentManagerXxx classes
+//   queue.offer / queue.poll / queue.peek on every queue manager
+//
+// Each runs at every roster (or queue) size and thread count asked for.
+// Implementations that are not thread-safe only run multi-threaded for
+// operations that leave the structure alone (find, update, iterate, peek).
+//
+// Options (all optional):
+//   --sizes 1000,10000,...   roster sizes, default 1K to 10M
+//   --threads 1,4            default 1 and the number of cores
+//   --filter list.find       only benchmarks whose "operation:target" contains this
+//   --warmup 3 --iterations 5 --time 1000   iterations and milliseconds per iteration
+//   --csv results.csv        also write results as CSV, to diff between runs
+//
+// 10M rosters need a large fixed heap, e.g. -Xms8g -Xmx8g
+public class StudentBenchmarks {
+
+    private static final String NAME = "Student";
+    private static final String[] MANAGER_TYPES = { "ARRAY", "LINKED", "VECTOR", "INDEXED", "COLUMNAR", "CONCURRENT" };
+
+    public static void main(String[] args) throws InterruptedException, IOException {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int[] sizes = { 1_000, 10_000, 100_000, 1_000_000, 10_000_000 };
+        int[] threadCounts = cores > 1 ? new int[] { 1, cores } : new int[] { 1, 2 };
+        String filter = "";
+        int warmup = 3;
+        int iterations = 5;
+        long millis = 1000;
+        String csv = null;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--sizes": sizes = parseInts(value); break;
+                case "--threads": threadCounts = parseInts(value); break;
+                case "--filter": filter = value; break;
+                case "--warmup": warmup = Integer.parseInt(value); break;
+                case "--iterations": iterations = Integer.parseInt(value); break;
+                case "--time": millis = Long.parseLong(value); break;
+                case "--csv": csv = value; break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        BenchmarkRunner runner = new BenchmarkRunner(warmup, iterations, millis);
+        List<BenchmarkResult> results = new ArrayList<>();
+        System.out.println(BenchmarkResult.header());
+        for (Benchmark benchmark : catalogue()) {
+            if (!benchmark.getName().contains(filter)) {
+                continue;
+            }
+            for (int size : sizes) {
+                for (int threads : threadCounts) {
+                    if (threads > 1 && !benchmark.isConcurrent()) {
+                        continue;
+                    }
+                    BenchmarkResult result = runner.run(benchmark, size, threads);
+                    System.out.println(result);
+                    results.add(result);
+                }
+            }
+        }
+
+        if (csv != null) {
+            try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Paths.get(csv)))) {
+                out.println("operation,target,size,threads,ops_per_sec,error,bytes_per_op,gc_count,gc_ms");
+                for (BenchmarkResult result : results) {
+                    out.println(result.toCsv());
+                }
+            }
+        }
+    }
+
+    public static List<Benchmark> catalogue() {
+        List<Benchmark> benchmarks = new ArrayList<>();
+        for (String type : MANAGER_TYPES) {
+            boolean threadSafe = type.equals("VECTOR") || type.equals("CONCURRENT");
+            addListBenchmarks(benchmarks, type, threadSafe, () -> managerRoster(new StudentManager(type)));
+        }
+        addListBenchmarks(benchmarks, "StudentManagerArrayList", false, () -> {
+            StudentManagerArrayList m = new StudentManagerArrayList();
+            return new Roster(m::addStudent, m::removeStudentById, m::findStudentById, m::updateMarks, null);
+        });
+        addListBenchmarks(benchmarks, "StudentManagerLinkedList", false, () -> {
+            StudentManagerLinkedList m = new StudentManagerLinkedList();
+            return new Roster(m::addStudent, m::removeStudentById, m::findStudentById, m::updateMarks, null);
+        });
+        addListBenchmarks(benchmarks, "StudentManagerVector", false, () -> {
+            StudentManagerVector m = new StudentManagerVector();
+            return new Roster(m::addStudent, m::removeStudentById, m::findStudentById, m::updateMarks, null);
+        });
+
+        addQueueBenchmarks(benchmarks, "StudentQueueManager", false, size -> {
+            StudentQueueManager q = new StudentQueueManager();
+            return new StudentQueue(s -> { q.addStudent(s); return true; }, q::serveStudent, q::peekNextStudent);
+        });
+        addQueueBenchmarks(benchmarks, "StudentArrayQueueManager", false, size -> {
+            StudentArrayQueueManager q = new StudentArrayQueueManager();
+            return new StudentQueue(s -> { q.addStudent(s); return true; }, q::serveStudent, q::peekNextStudent);
+        });
+        addQueueBenchmarks(benchmarks, "StudentPriorityQueueManager", false, size -> {
+            StudentPriorityQueueManager q = new StudentPriorityQueueManager();
+            return new StudentQueue(s -> { q.addStudent(s); return true; }, q::serveStudent, q::peekTopStudent);
+        });
+        addQueueBenchmarks(benchmarks, "StudentPriorityQueueManager/BUCKET", false, size -> {
+            StudentPriorityQueueManager q = new StudentPriorityQueueManager("BUCKET");
+            return new StudentQueue(s -> { q.addStudent(s); return true; }, q::serveStudent, q::peekTopStudent);
+        });
+        addQueueBenchmarks(benchmarks, "StudentRingBufferQueueManager", true, size -> {
+            StudentRingBufferQueueManager q = new StudentRingBufferQueueManager(ringCapacity(size), BackpressurePolicy.FAIL);
+            return new StudentQueue(q::addStudent, q::serveStudent, q::peekNextStudent);
+        });
+        return benchmarks;
+    }
+
+    private static void addListBenchmarks(List<Benchmark> benchmarks, String target, boolean threadSafe,
+            RosterFactory factory) {
+        benchmarks.add(new Benchmark("list.add", target, size -> {
+            Roster roster = filled(factory, size);
+            return op -> {
+                roster.add.accept(new Student((int) (size + op), NAME, 50));
+                return roster;
+            };
+        }, true, threadSafe));
+        benchmarks.add(new Benchmark("list.find", target, size -> {
+            Roster roster = filled(factory, size);
+            return op -> roster.find.apply(randomId(op, size));
+        }, false, true));
+        benchmarks.add(new Benchmark("list.update", target, size -> {
+            Roster roster = filled(factory, size);
+            return op -> roster.update.update(randomId(op, size), (op & 1023) / 10.0) ? Boolean.TRUE : Boolean.FALSE;
+        }, false, true));
+        // Every op removes a different student, in scattered order
+        benchmarks.add(new Benchmark("list.remove", target, size -> {
+            Roster roster = filled(factory, size);
+            long stride = coprimeStride(size);
+            return op -> roster.remove.test((int) (op * stride % size)) ? Boolean.TRUE : Boolean.FALSE;
+        }, true, threadSafe, size -> size));
+        if (factory.create().forEach != null) {
+            // One op is a full pass over the roster
+            benchmarks.add(new Benchmark("list.iterate", target, size -> {
+                Roster roster = filled(factory, size);
+                return op -> {
+                    MarksSum sum = new MarksSum();
+                    roster.forEach.accept(sum);
+                    return sum;
+                };
+            }, false, true));
+        }
+    }
+
+    private static void addQueueBenchmarks(List<Benchmark> benchmarks, String target, boolean threadSafe,
+            IntFunction<StudentQueue> factory) {
+        // Offers run on a queue already holding size students
+        benchmarks.add(new Benchmark("queue.offer", target, size -> {
+            StudentQueue queue = filled(factory, size);
+            return op -> queue.offer.test(new Student((int) (size + op), NAME, randomMarks(op))) ? Boolean.TRUE : Boolean.FALSE;
+        }, true, threadSafe, size -> ringCapacity(size) - (long) size));
+        benchmarks.add(new Benchmark("queue.poll", target, size -> {
+            StudentQueue queue = filled(factory, size);
+            return op -> queue.poll.get();
+        }, true, threadSafe, size -> size));
+        benchmarks.add(new Benchmark("queue.peek", target, size -> {
+            StudentQueue queue = filled(factory, size);
+            return op -> queue.peek.get();
+        }, false, true));
+    }
+
+    private static Roster managerRoster(StudentManager manager) {
+        return new Roster(manager::addStudent, manager::removeStudentById, manager::findStudentById,
+                manager::updateMarks, manager::forEachStudent);
+    }
+
+    private static Roster filled(RosterFactory factory, int size) {
+        Roster roster = factory.create();
+        for (int i = 0; i < size; i++) {
+            roster.add.accept(new Student(i, NAME, randomMarks(i)));
+        }
+        return roster;
+    }
+
+    private static StudentQueue filled(IntFunction<StudentQueue> factory, int size) {
+        StudentQueue queue = factory.apply(size);
+        for (int i = 0; i < size; i++) {
+            queue.offer.test(new Student(i, NAME, randomMarks(i)));
+        }
+        return queue;
+    }
+
+    // Room for the initial students plus an iteration's worth of offers
+    private static int ringCapacity(int size) {
+        return Math.min(1 << 30, Integer.highestOneBit(size + (1 << 22)) << 1);
+    }
+
+    // Scrambles op numbers so successive finds do not walk the roster in order
+    private static int randomId(long op, int size) {
+        long h = op * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 29;
+        return (int) ((h >>> 1) % size);
+    }
+
+    private static double randomMarks(long op) {
+        return randomId(op, 1001) / 10.0;
+    }
+
+    private static long coprimeStride(int size) {
+        long stride = 1_000_003;
+        while (gcd(stride, size) != 1) {
+            stride += 2;
+        }
+        return stride;
+    }
+
+    private static long gcd(long a, long b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    private static int[] parseInts(String csv) {
+        String[] parts = csv.split(",");
+        int[] values = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            values[i] = Integer.parseInt(parts[i].trim());
+        }
+        return values;
+    }
+
+    private interface RosterFactory {
+        Roster create();
+    }
+
+    private interface MarksUpdate {
+        boolean update(int id, double marks);
+    }
+
+    private interface Remove {
+        boolean test(int id);
+    }
+
+    private interface Find {
+        Student apply(int id);
+    }
+
+    private interface Offer {
+        boolean test(Student s);
+    }
+
+    private interface Take {
+        Student get();
+    }
+
+    // The list operations of one implementation; forEach is null when it has no iteration
+    private static class Roster {
+        final Consumer<Student> add;
+        final Remove remove;
+        final Find find;
+        final MarksUpdate update;
+        final Consumer<Consumer<? super Student>> forEach;
+
+        Roster(Consumer<Student> add, Remove remove, Find find, MarksUpdate update,
+                Consumer<Consumer<? super Student>> forEach) {
+            this.add = add;
+            this.remove = remove;
+            this.find = find;
+            this.update = update;
+            this.forEach = forEach;
+        }
+    }
+
+    private static class StudentQueue {
+        final Offer offer;
+        final Take poll;
+        final Take peek;
+
+        StudentQueue(Offer offer, Take poll, Take peek) {
+            this.offer = offer;
+            this.poll = poll;
+            this.peek = peek;
+        }
+    }
+
+    private static class MarksSum implements Consumer<Student> {
+        double sum;
+
+        @Override
+        public void accept(Student s) {
+            sum += s.getMarks();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.aiiqlabs.lib.event;
+
+import com.aiiqlabs.modal.Student;
+
+// One change to a roster, copied out of the Student at the time it happened
+public final class StudentChangeEvent {
+
+    public enum Type {
+        ADDED,
+        MARKS_UPDATED,
+        REMOVED
+    }
+
+    private final Type type;
+    private final int studentId;
+    private final String name;
+    private final double oldMarks;     // NaN for ADDED
+    private final double newMarks;     // NaN for REMOVED
+
+    StudentChangeEvent(Type type, int studentId, String name, double oldMarks, double newMarks) {
+        this.type = type;
+        this.studentId = studentId;
+        this.name = name;
+        this.oldMarks = oldMarks;
+        this.newMarks = newMarks;
+    }
+
+    static StudentChangeEvent added(Student s) {
+        return new StudentChangeEvent(Type.ADDED, s.getId(), s.getName(), Double.NaN, s.getMarks());
+    }
+
+    static StudentChangeEvent marksUpdated(Student s, double oldMarks, double newMarks) {
+        return new StudentChangeEvent(Type.MARKS_UPDATED, s.getId(), s.getName(), oldMarks, newMarks);
+    }
+
+    static StudentChangeEvent removed(Student s) {
+        return new StudentChangeEvent(Type.REMOVED, s.getId(), s.getName(), s.getMarks(), Double.NaN);
+    }
+
+    public Type getType() { return type; }
+    public int getStudentId() { return studentId; }
+    public String getName() { return name; }
+    public double getOldMarks() { return oldMarks; }
+    public double getNewMarks() { return newMarks; }
+
+    @Override
+    public String toString() {
+        switch (type) {
+            case ADDED:
+                return "ADDED " + studentId + " - " + name + " : " + newMarks;
+            case MARKS_UPDATED:
+                return "MARKS_UPDATED " + studentId + " - " + name + " : " + oldMarks + " -> " + newMarks;
+            default:
+                return "REMOVED " + studentId + " - " + name + " : " + oldMarks;
+        }
+    }
+}
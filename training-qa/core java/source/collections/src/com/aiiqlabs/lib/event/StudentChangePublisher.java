@@ -0,0 +1,292 @@
+package com.aiiqlabs.lib.event;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import com.aiiqlabs.lib.list.StudentChangeListener;
+import com.aiiqlabs.lib.list.StudentManager;
+import com.aiiqlabs.lib.queue.BackpressurePolicy;
+import com.aiiqlabs.modal.Student;
+
+// Streams the changes made through a StudentManager to Flow subscribers, so
+// caches and reports can keep derived views up to date instead of re-scanning
+// the roster.
+//
+// Each subscriber gets its own bounded buffer and is fed on the executor, never
+// on the mutating thread. Events arrive in batches: one unit of demand
+// (request(1)) is one List of up to maxBatch events, so a subscriber that falls
+// behind catches up in large batches instead of one call per event. When a
+// subscriber's buffer is full the policy decides. FAIL, the default, drops
+// that subscriber with onError, since it has missed an event and has to
+// rebuild its view. BLOCK and SPIN hold the mutating thread until there is
+// room, and with it the manager's lock for that id (every id's, for a bulk
+// call), so other writers queue behind a slow subscriber and one that writes
+// to the manager from onNext deadlocks. Choose them only for subscribers that
+// keep up and never write back.
+//
+// By default a subscriber is woken for every change, which costs the
+// mutating thread a thread wake-up whenever the subscriber has caught up.
+// setLinger lets events gather for a while (or until a full batch) first,
+// trading that much delivery latency for far fewer wake-ups.
+//
+// The publisher only listens to the manager while someone is subscribed, so
+// with no subscribers mutations cost nothing extra.
+//
+//   StudentChangePublisher changes = new StudentChangePublisher(manager);
+//   changes.subscribe(subscriber);
+public class StudentChangePublisher implements Flow.Publisher<List<StudentChangeEvent>>, StudentChangeListener,
+        AutoCloseable {
+
+    public static final int DEFAULT_BUFFER_CAPACITY = 1 << 16;
+    public static final int DEFAULT_MAX_BATCH = 256;
+
+    private final StudentManager manager;
+    private final Executor executor;
+    private final int bufferCapacity;
+    private final int maxBatch;
+    private final BackpressurePolicy policy;
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private volatile long lingerNanos;
+    private ScheduledExecutorService timer;
+    private boolean listening;
+    private boolean closed;
+
+    public StudentChangePublisher(StudentManager manager) {
+        this(manager, ForkJoinPool.commonPool(), DEFAULT_BUFFER_CAPACITY, DEFAULT_MAX_BATCH, BackpressurePolicy.FAIL);
+    }
+
+    public StudentChangePublisher(StudentManager manager, Executor executor, int bufferCapacity, int maxBatch,
+            BackpressurePolicy policy) {
+        if (bufferCapacity < 1 || maxBatch < 1) {
+            throw new IllegalArgumentException("bufferCapacity and maxBatch must be at least 1");
+        }
+        this.manager = manager;
+        this.executor = executor;
+        this.bufferCapacity = bufferCapacity;
+        this.maxBatch = maxBatch;
+        this.policy = policy;
+    }
+
+    // Events start with the next change; take a snapshot first to seed a view
+    @Override
+    public void subscribe(Flow.Subscriber<? super List<StudentChangeEvent>> subscriber) {
+        Subscription subscription = new Subscription(subscriber);
+        subscriber.onSubscribe(subscription);
+        synchronized (this) {
+            if (closed) {
+                subscription.complete();
+                return;
+            }
+            subscriptions.add(subscription);
+            if (!listening) {
+                manager.addChangeListener(this);
+                listening = true;
+            }
+        }
+    }
+
+    // Hold events for up to this long, or until maxBatch are buffered, before
+    // waking a subscriber; zero delivers straight away
+    public synchronized void setLinger(long time, TimeUnit unit) {
+        if (time > 0 && timer == null) {
+            ScheduledThreadPoolExecutor t = new ScheduledThreadPoolExecutor(1, r -> {
+                Thread thread = new Thread(r, "student-change-linger");
+                thread.setDaemon(true);
+                return thread;
+            });
+            t.setRemoveOnCancelPolicy(true);
+            timer = t;
+        }
+        lingerNanos = unit.toNanos(Math.max(time, 0));
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    // Stop listening; subscribers get what is buffered, then onComplete
+    @Override
+    public synchronized void close() {
+        closed = true;
+        stopListening();
+        for (Subscription subscription : subscriptions) {
+            subscription.complete();
+        }
+        subscriptions.clear();
+        if (timer != null) {
+            timer.shutdown();
+        }
+    }
+
+    @Override
+    public void studentAdded(Student s) {
+        publish(StudentChangeEvent.added(s));
+    }
+
+    @Override
+    public void marksUpdated(Student s, double oldMarks, double newMarks) {
+        publish(StudentChangeEvent.marksUpdated(s, oldMarks, newMarks));
+    }
+
+    @Override
+    public void studentRemoved(Student s) {
+        publish(StudentChangeEvent.removed(s));
+    }
+
+    private void publish(StudentChangeEvent event) {
+        for (Subscription subscription : subscriptions) {
+            subscription.offer(event);
+        }
+    }
+
+    private synchronized void unsubscribe(Subscription subscription) {
+        if (subscriptions.remove(subscription) && subscriptions.isEmpty()) {
+            stopListening();
+        }
+    }
+
+    private void stopListening() {
+        if (listening) {
+            manager.removeChangeListener(this);
+            listening = false;
+        }
+    }
+
+    // One subscriber's buffer and demand. Deliveries are serialized by wip:
+    // whoever raises it from zero schedules a drain, which runs until nothing
+    // new has been signalled.
+    private final class Subscription implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super List<StudentChangeEvent>> subscriber;
+        private final Queue<StudentChangeEvent> buffer = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger buffered = new AtomicInteger();
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile boolean completing;
+        private volatile Throwable error;
+
+        Subscription(Flow.Subscriber<? super List<StudentChangeEvent>> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                fail(new IllegalArgumentException("request must be positive: " + n));
+                return;
+            }
+            demand.getAndAccumulate(n, (current, add) -> current + add < 0 ? Long.MAX_VALUE : current + add);
+            signal();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            unsubscribe(this);
+            signal();
+        }
+
+        void offer(StudentChangeEvent event) {
+            while (buffered.get() >= bufferCapacity && !cancelled) {
+                if (policy == BackpressurePolicy.FAIL) {
+                    fail(new IllegalStateException("Subscriber fell more than " + bufferCapacity + " events behind"));
+                    return;
+                } else if (policy == BackpressurePolicy.SPIN) {
+                    Thread.onSpinWait();
+                } else {
+                    LockSupport.parkNanos(50_000);
+                }
+            }
+            if (cancelled) {
+                return;
+            }
+            buffer.offer(event);
+            int pending = buffered.incrementAndGet();
+            long linger = lingerNanos;
+            if (linger == 0 || pending >= maxBatch) {
+                signal();
+            } else if (pending == 1) {
+                try {
+                    timer.schedule(this::signal, linger, TimeUnit.NANOSECONDS);
+                } catch (RejectedExecutionException e) {
+                    signal();       // closing
+                }
+            }
+        }
+
+        void complete() {
+            completing = true;
+            signal();
+        }
+
+        private void fail(Throwable t) {
+            error = t;
+            cancelled = true;
+            unsubscribe(this);
+            signal();
+        }
+
+        private void signal() {
+            if (wip.getAndIncrement() == 0) {
+                executor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            int missed = 1;
+            do {
+                if (cancelled) {
+                    buffer.clear();
+                    Throwable t = error;
+                    if (t != null) {
+                        error = null;
+                        subscriber.onError(t);
+                    }
+                } else {
+                    deliver();
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void deliver() {
+            while (demand.get() > 0 && !buffer.isEmpty() && !cancelled) {
+                List<StudentChangeEvent> batch = new ArrayList<>(Math.min(maxBatch, buffered.get()));
+                StudentChangeEvent event;
+                while (batch.size() < maxBatch && (event = buffer.poll()) != null) {
+                    batch.add(event);
+                }
+                buffered.addAndGet(-batch.size());
+                if (demand.get() != Long.MAX_VALUE) {
+                    demand.decrementAndGet();
+                }
+                try {
+                    subscriber.onNext(batch);
+                } catch (Throwable t) {
+                    cancelled = true;
+                    unsubscribe(this);
+                    subscriber.onError(t);
+                    return;
+                }
+            }
+            if (completing && buffer.isEmpty() && !cancelled) {
+                cancelled = true;
+                subscriber.onComplete();
+            }
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package com.aiiqlabs.lib.index;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.aiiqlabs.lib.list.StudentChangeListener;
+import com.aiiqlabs.lib.list.StudentManager;
+import com.aiiqlabs.modal.Student;
+
+// Order-statistics index over marks, kept in sync with a StudentManager through
+// its change events. Students sit in a treap (randomised balanced BST) ordered
+// by marks descending, then id ascending, and every node knows its subtree
+// size - so rank, k-th, percentile and range counts are O(log n), and top-K or
+// range listings cost O(log n + matches). Nothing is copied or sorted per query.
+// Only attaches to rosters that key students by id.
+public class MarksRankIndex implements StudentChangeListener {
+
+    private Node root;
+    private Map<Integer, Double> marksById = new HashMap<>();
+    private int seed = 0x2545F491;
+
+    // Split results, to avoid allocating a pair per split
+    private Node splitLeft;
+    private Node splitRight;
+
+    // Build the index from the current roster and keep it in sync from now on.
+    // Needs a roster keyed by id: where ids repeat, a remove by id could not
+    // tell which of the indexed students went.
+    public static MarksRankIndex attach(StudentManager manager) {
+        if (!manager.isKeyedById()) {
+            throw new IllegalArgumentException("MarksRankIndex needs a roster keyed by id, not ARRAY, LINKED, VECTOR or AUTO");
+        }
+        MarksRankIndex index = new MarksRankIndex();
+        manager.addChangeListenerAndReplay(index);
+        return index;
+    }
+
+    @Override
+    public synchronized void studentAdded(Student s) {
+        insert(s, s.getMarks());
+    }
+
+    @Override
+    public synchronized void marksUpdated(Student s, double oldMarks, double newMarks) {
+        Double indexed = marksById.get(s.getId());
+        if (indexed != null) {
+            root = delete(root, indexed, s.getId());
+        }
+        insert(s, newMarks);
+    }
+
+    @Override
+    public synchronized void studentRemoved(Student s) {
+        Double indexed = marksById.remove(s.getId());
+        if (indexed != null) {
+            root = delete(root, indexed, s.getId());
+        }
+    }
+
+    public synchronized int size() {
+        return size(root);
+    }
+
+    // 1 for the top student; -1 if the id is not in the roster
+    public synchronized int rankOf(int studentId) {
+        Double marks = marksById.get(studentId);
+        if (marks == null) {
+            return -1;
+        }
+        int before = 0;
+        Node node = root;
+        while (node != null) {
+            int c = compare(marks, studentId, node.marks, node.id);
+            if (c == 0) {
+                return before + size(node.left) + 1;
+            }
+            if (c < 0) {
+                node = node.left;
+            } else {
+                before += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return -1;
+    }
+
+    // Student at a given rank (1-based), or null
+    public synchronized Student studentAtRank(int rank) {
+        Node node = select(rank - 1);
+        return node == null ? null : node.student;
+    }
+
+    // Highest k students, best first
+    public synchronized List<Student> topStudents(int k) {
+        List<Student> top = new ArrayList<>(Math.min(Math.max(k, 0), size(root)));
+        Deque<Node> path = new ArrayDeque<>();
+        Node node = root;
+        while (top.size() < k && (node != null || !path.isEmpty())) {
+            while (node != null) {
+                path.push(node);
+                node = node.left;
+            }
+            node = path.pop();
+            top.add(node.student);
+            node = node.right;
+        }
+        return top;
+    }
+
+    // Nearest-rank percentile: the smallest mark with at least p% of students at or below it
+    public synchronized double percentile(double p) {
+        if (p < 0 || p > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100");
+        }
+        int n = size(root);
+        if (n == 0) {
+            return Double.NaN;
+        }
+        int k = Math.max(1, (int) Math.ceil(p / 100.0 * n));   // k-th smallest
+        return select(n - k).marks;
+    }
+
+    // Students with from <= marks < to, best first
+    public synchronized List<Student> studentsInRange(double from, double to) {
+        List<Student> matches = new ArrayList<>();
+        collect(root, from, to, matches);
+        return matches;
+    }
+
+    public synchronized int countInRange(double from, double to) {
+        if (!(from < to)) {
+            return 0;
+        }
+        return countAtLeast(from) - countAtLeast(to);
+    }
+
+    private void insert(Student s, double marks) {
+        marksById.put(s.getId(), marks);
+        Node node = new Node(s, marks, nextPriority());
+        split(root, marks, s.getId());
+        root = merge(merge(splitLeft, node), splitRight);
+    }
+
+    private Node delete(Node node, double marks, int id) {
+        if (node == null) {
+            return null;
+        }
+        int c = compare(marks, id, node.marks, node.id);
+        if (c == 0) {
+            return merge(node.left, node.right);
+        }
+        if (c < 0) {
+            node.left = delete(node.left, marks, id);
+        } else {
+            node.right = delete(node.right, marks, id);
+        }
+        update(node);
+        return node;
+    }
+
+    // splitLeft gets the nodes ordered before (marks, id), splitRight the rest
+    private void split(Node node, double marks, int id) {
+        if (node == null) {
+            splitLeft = null;
+            splitRight = null;
+        } else if (compare(node.marks, node.id, marks, id) < 0) {
+            split(node.right, marks, id);
+            node.right = splitLeft;
+            update(node);
+            splitLeft = node;
+        } else {
+            split(node.left, marks, id);
+            node.left = splitRight;
+            update(node);
+            splitRight = node;
+        }
+    }
+
+    private Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            update(left);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        update(right);
+        return right;
+    }
+
+    // 0-based position in best-first order
+    private Node select(int position) {
+        Node node = root;
+        while (node != null) {
+            int leftSize = size(node.left);
+            if (position < leftSize) {
+                node = node.left;
+            } else if (position == leftSize) {
+                return node;
+            } else {
+                position -= leftSize + 1;
+                node = node.right;
+            }
+        }
+        return null;
+    }
+
+    private int countAtLeast(double marks) {
+        int count = 0;
+        Node node = root;
+        while (node != null) {
+            if (node.marks >= marks) {
+                count += size(node.left) + 1;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return count;
+    }
+
+    // Higher marks are on the left, so whole subtrees outside [from, to) are skipped
+    private void collect(Node node, double from, double to, List<Student> out) {
+        if (node == null) {
+            return;
+        }
+        if (node.marks >= to) {
+            collect(node.right, from, to, out);
+        } else if (node.marks < from) {
+            collect(node.left, from, to, out);
+        } else {
+            collect(node.left, from, to, out);
+            out.add(node.student);
+            collect(node.right, from, to, out);
+        }
+    }
+
+    private int nextPriority() {
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        return seed;
+    }
+
+    // Best-first: higher marks, then lower id
+    private static int compare(double marks1, int id1, double marks2, int id2) {
+        int c = Double.compare(marks2, marks1);
+        return c != 0 ? c : Integer.compare(id1, id2);
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static void update(Node node) {
+        node.size = size(node.left) + size(node.right) + 1;
+    }
+
+    private static class Node {
+        final Student student;
+        final double marks;
+        final int id;
+        final int priority;
+        int size = 1;
+        Node left;
+        Node right;
+
+        Node(Student student, double marks, int priority) {
+            this.student = student;
+            this.marks = marks;
+            this.id = student.getId();
+            this.priority = priority;
+        }
+    }
+}
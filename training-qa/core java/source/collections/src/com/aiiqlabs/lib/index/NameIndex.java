@@ -0,0 +1,300 @@
+package com.aiiqlabs.lib.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.aiiqlabs.lib.list.StudentChangeListener;
+import com.aiiqlabs.lib.list.StudentManager;
+import com.aiiqlabs.lib.util.IntIntHashMap;
+import com.aiiqlabs.modal.Student;
+
+// Case-insensitive name search, kept in sync with a StudentManager through its
+// change events. Many students share a name, so the index is built over the
+// distinct names:
+//
+//   prefix    - names sorted in a TreeMap; a prefix is one contiguous range
+//   substring - every 1-, 2- and 3-character piece (n-gram) of a name points
+//               at the names containing it; a query walks the rarest piece's
+//               names and checks each one
+//
+// Either way a query visits only names that can match, never the roster.
+// Each name remembers where it sits in every piece's list, so dropping the
+// last student of a name costs O(pieces in it), however common they are.
+// Students without a name match no query and are not indexed.
+// Only attaches to rosters that key students by id.
+public class NameIndex implements StudentChangeListener {
+
+    private static final int GRAM = 3;
+
+    private final NavigableMap<String, NameEntry> byName = new TreeMap<>();
+    private final List<NameEntry> entries = new ArrayList<>();     // by name number, null once unused
+    private final IntList freeNumbers = new IntList();
+    private final Map<Long, NameList> namesByGram = new HashMap<>();
+    private final IntIntHashMap nameOf = new IntIntHashMap();      // student id -> name number
+    private final IntIntHashMap positionOf = new IntIntHashMap();  // student id -> position in its entry
+
+    // Build the index from the current roster and keep it in sync from now on.
+    // Needs a roster keyed by id: where ids repeat, a remove by id could not
+    // tell which of the indexed students went.
+    public static NameIndex attach(StudentManager manager) {
+        if (!manager.isKeyedById()) {
+            throw new IllegalArgumentException("NameIndex needs a roster keyed by id, not ARRAY, LINKED, VECTOR or AUTO");
+        }
+        NameIndex index = new NameIndex();
+        manager.addChangeListenerAndReplay(index);
+        return index;
+    }
+
+    @Override
+    public synchronized void studentAdded(Student s) {
+        remove(s.getId());
+        if (s.getName() == null) {
+            return;
+        }
+        String key = s.getName().toLowerCase(Locale.ROOT);
+        NameEntry entry = byName.get(key);
+        if (entry == null) {
+            entry = newEntry(key);
+        }
+        nameOf.put(s.getId(), entry.number);
+        positionOf.put(s.getId(), entry.size);
+        entry.add(s);
+    }
+
+    // Keep the Student the roster now holds, for stores that replace it on update
+    @Override
+    public synchronized void marksUpdated(Student s, double oldMarks, double newMarks) {
+        int number = nameOf.get(s.getId());
+        if (number >= 0) {
+            entries.get(number).students[positionOf.get(s.getId())] = s;
+        }
+    }
+
+    @Override
+    public synchronized void studentRemoved(Student s) {
+        remove(s.getId());
+    }
+
+    // Students with a name
+    public synchronized int size() {
+        return nameOf.size();
+    }
+
+    public synchronized int getDistinctNames() {
+        return byName.size();
+    }
+
+    // Students whose name starts with prefix, in name order
+    public synchronized List<Student> findByNamePrefix(String prefix) {
+        String from = prefix.toLowerCase(Locale.ROOT);
+        List<Student> matches = new ArrayList<>();
+        for (NameEntry entry : byName.subMap(from, true, from + Character.MAX_VALUE, false).values()) {
+            entry.addTo(matches);
+        }
+        return matches;
+    }
+
+    // Students whose name contains part anywhere
+    public synchronized List<Student> findByNameContaining(String part) {
+        String query = part.toLowerCase(Locale.ROOT);
+        List<Student> matches = new ArrayList<>();
+        if (query.isEmpty()) {
+            for (NameEntry entry : byName.values()) {
+                entry.addTo(matches);
+            }
+            return matches;
+        }
+        int length = Math.min(GRAM, query.length());
+        NameList rarest = null;
+        for (int i = 0; i + length <= query.length(); i++) {
+            NameList names = namesByGram.get(gram(query, i, length));
+            if (names == null) {
+                return matches;
+            }
+            if (rarest == null || names.size < rarest.size) {
+                rarest = names;
+            }
+        }
+        for (int i = 0; i < rarest.size; i++) {
+            NameEntry entry = entries.get(rarest.numbers[i]);
+            if (entry.key.contains(query)) {
+                entry.addTo(matches);
+            }
+        }
+        return matches;
+    }
+
+    // Approximate heap held by the index, in bytes (64-bit JVM, compressed pointers)
+    public synchronized long footprintBytes() {
+        long bytes = nameOf.footprintBytes() + positionOf.footprintBytes() + 16 + 4L * entries.size();
+        for (NameEntry entry : byName.values()) {
+            // TreeMap node, key String and its bytes, entry object, its student
+            // array and its gram and position arrays
+            bytes += 40 + 24 + 16 + entry.key.length() + 40 + 16 + 4L * entry.students.length
+                    + 32 + 12L * entry.grams.length;
+        }
+        for (NameList names : namesByGram.values()) {
+            // HashMap node, boxed key, list object and its two arrays
+            bytes += 32 + 16 + 24 + 32 + 8L * names.numbers.length;
+        }
+        return bytes + 16 + 4L * namesByGram.size();
+    }
+
+    private void remove(int id) {
+        int number = nameOf.remove(id);
+        if (number < 0) {
+            return;
+        }
+        NameEntry entry = entries.get(number);
+        int position = positionOf.remove(id);
+        Student moved = entry.removeAt(position);
+        if (moved != null) {
+            positionOf.put(moved.getId(), position);
+        }
+        if (entry.size == 0) {
+            dropEntry(entry);
+        }
+    }
+
+    private NameEntry newEntry(String key) {
+        int number;
+        if (freeNumbers.size > 0) {
+            number = freeNumbers.values[--freeNumbers.size];
+        } else {
+            number = entries.size();
+            entries.add(null);
+        }
+        NameEntry entry = new NameEntry(number, key, grams(key));
+        entries.set(number, entry);
+        byName.put(key, entry);
+        for (int i = 0; i < entry.grams.length; i++) {
+            entry.gramPositions[i] = namesByGram.computeIfAbsent(entry.grams[i], g -> new NameList()).add(number, i);
+        }
+        return entry;
+    }
+
+    // Swap the last name of each list into this one's place
+    private void dropEntry(NameEntry entry) {
+        byName.remove(entry.key);
+        entries.set(entry.number, null);
+        freeNumbers.add(entry.number);
+        for (int i = 0; i < entry.grams.length; i++) {
+            NameList names = namesByGram.get(entry.grams[i]);
+            int position = entry.gramPositions[i];
+            int last = --names.size;
+            if (position != last) {
+                int moved = names.numbers[last];
+                int slot = names.slots[last];
+                names.numbers[position] = moved;
+                names.slots[position] = slot;
+                entries.get(moved).gramPositions[slot] = position;
+            }
+            if (names.size == 0) {
+                namesByGram.remove(entry.grams[i]);
+            }
+        }
+    }
+
+    private static long[] grams(String key) {
+        Set<Long> grams = new HashSet<>();
+        for (int length = 1; length <= GRAM; length++) {
+            for (int i = 0; i + length <= key.length(); i++) {
+                grams.add(gram(key, i, length));
+            }
+        }
+        long[] distinct = new long[grams.size()];
+        int i = 0;
+        for (long gram : grams) {
+            distinct[i++] = gram;
+        }
+        return distinct;
+    }
+
+    // Up to three chars and the length, packed into one long
+    private static long gram(String s, int from, int length) {
+        long gram = length;
+        for (int i = 0; i < length; i++) {
+            gram = (gram << 16) | s.charAt(from + i);
+        }
+        return gram;
+    }
+
+    // Students sharing one lower-cased name; removal swaps the last one in
+    private static final class NameEntry {
+        final int number;
+        final String key;
+        final long[] grams;
+        final int[] gramPositions;      // where this name sits in each gram's list
+        Student[] students = new Student[1];
+        int size;
+
+        NameEntry(int number, String key, long[] grams) {
+            this.number = number;
+            this.key = key;
+            this.grams = grams;
+            this.gramPositions = new int[grams.length];
+        }
+
+        void add(Student s) {
+            if (size == students.length) {
+                students = Arrays.copyOf(students, size * 2);
+            }
+            students[size++] = s;
+        }
+
+        // Returns the student moved into position, if any
+        Student removeAt(int position) {
+            Student last = students[--size];
+            students[size] = null;
+            if (position == size) {
+                return null;
+            }
+            students[position] = last;
+            return last;
+        }
+
+        void addTo(List<Student> out) {
+            for (int i = 0; i < size; i++) {
+                out.add(students[i]);
+            }
+        }
+    }
+
+    private static final class IntList {
+        int[] values = new int[2];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+
+    // The names holding one gram, each with the index of that gram in the name's own arrays
+    private static final class NameList {
+        int[] numbers = new int[2];
+        int[] slots = new int[2];
+        int size;
+
+        // Returns the position it was added at
+        int add(int number, int slot) {
+            if (size == numbers.length) {
+                numbers = Arrays.copyOf(numbers, size * 2);
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            numbers[size] = number;
+            slots[size] = slot;
+            return size++;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.aiiqlabs.lib.io;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.aiiqlabs.lib.list.StudentManager;
+import com.aiiqlabs.lib.util.IntIntHashMap;
+import com.aiiqlabs.modal.Student;
+
+// What turns one roster into another: students to insert, ids to remove and
+// new marks for students that stay. Built in linear time: the current roster
+// is copied into an array and indexed by id in a primitive hash map, which
+// holds memory in proportion to the current roster. Incoming rows are streamed
+// - from a file, a few parsed chunks at a time - each looked up once and
+// ticked off, and whatever was never ticked has gone. Nothing is kept for
+// incoming rows that did not change, so a nightly sync of a roster that barely
+// moved costs two scans to compare and only the changes to apply.
+//
+// A student whose name changed is removed and inserted again. An id that
+// repeats on either side is not compared row by row: every current row for it
+// is removed and every incoming row for it inserted in order, so after
+// applyTo the roster holds what loading the file into it would give - all the
+// rows on ARRAY, the last one on a roster keyed by id.
+//
+//   RosterDelta delta = RosterDelta.between(live, new RosterLoader(), file, RosterFormat.CSV);
+//   delta.applyTo(live);
+public final class RosterDelta {
+
+    private final int[] removedIds;
+    private final List<Student> inserted;
+    private final int[] changedIds;
+    private final double[] oldMarks;
+    private final double[] newMarks;
+
+    private RosterDelta(Builder b) {
+        removedIds = Arrays.copyOf(b.removed, b.removedCount);
+        inserted = Collections.unmodifiableList(b.inserted);
+        changedIds = Arrays.copyOf(b.changed, b.changedCount);
+        oldMarks = Arrays.copyOf(b.oldMarks, b.changedCount);
+        newMarks = Arrays.copyOf(b.newMarks, b.changedCount);
+    }
+
+    // Changes that make current look like incoming. Neither may change meanwhile.
+    public static RosterDelta between(StudentManager current, StudentManager incoming) {
+        Builder b = new Builder(current);
+        incoming.forEachStudent(s -> b.row(s.getId(), s.getName(), s.getMarks()));
+        return b.build();
+    }
+
+    // Changes that make current look like the roster file; rows are compared
+    // as they are parsed, without building Students for them
+    public static RosterDelta between(StudentManager current, RosterLoader loader, Path file, RosterFormat format)
+            throws IOException {
+        Builder b = new Builder(current);
+        loader.read(file, format, b);
+        return b.build();
+    }
+
+    // Apply through StudentManager.applyChanges: a bulk remove and a bulk marks
+    // update (one pass each, even on ARRAY), then the inserts. A SNAPSHOT
+    // target publishes it all at once; see applyChanges for the others.
+    // Returns how many changes were made.
+    public int applyTo(StudentManager target) {
+        if (isEmpty()) {
+            return 0;
+        }
+        return target.applyChanges(removedIds, changedIds, newMarks, inserted);
+    }
+
+    public int[] getRemovedIds() {
+        return removedIds.clone();
+    }
+
+    // New Students, not shared with the incoming roster
+    public List<Student> getInserted() {
+        return inserted;
+    }
+
+    public int[] getChangedIds() {
+        return changedIds.clone();
+    }
+
+    // Marks before and after, in the order of getChangedIds()
+    public double[] getOldMarks() {
+        return oldMarks.clone();
+    }
+
+    public double[] getNewMarks() {
+        return newMarks.clone();
+    }
+
+    // Total number of changes
+    public int size() {
+        return removedIds.length + inserted.size() + changedIds.length;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%,d inserted, %,d removed, %,d marks changed", inserted.size(), removedIds.length,
+                changedIds.length);
+    }
+
+    // The current roster in order, its id index, and what the incoming side
+    // has made of each current student so far
+    private static final class Builder implements RosterLoader.RowHandler {
+
+        private static final byte UNSEEN = 0;
+        private static final byte UNCHANGED = 1;
+        private static final byte MARKS_CHANGED = 2;
+        private static final byte RENAMED = 3;
+        private static final byte REPEATED = 4;         // unseen, and the current roster repeats its id
+        private static final byte SUPERSEDED = 5;       // a current row followed by another with its id
+        private static final byte REPLACED = 6;         // id repeats: removed, incoming rows all inserted
+
+        private Student[] students;
+        private int count;
+        private final IntIntHashMap index;
+        private final byte[] state;
+        private final IntIntHashMap changedAt = new IntIntHashMap();
+
+        private final List<Student> inserted = new ArrayList<>();
+        private int[] removed = new int[16];
+        private int removedCount;
+        private int[] changed = new int[16];
+        private double[] oldMarks = new double[16];
+        private double[] newMarks = new double[16];
+        private int changedCount;
+
+        Builder(StudentManager current) {
+            students = new Student[Math.max(16, current.getStudentCount())];
+            current.forEachStudent(s -> {
+                if (count == students.length) {
+                    students = Arrays.copyOf(students, count + (count >> 1));
+                }
+                students[count++] = s;
+            });
+            index = new IntIntHashMap(count);
+            state = new byte[count];
+            for (int i = 0; i < count; i++) {
+                int earlier = index.put(students[i].getId(), i);
+                if (earlier >= 0) {
+                    state[earlier] = SUPERSEDED;        // the index points at the last row for an id
+                    state[i] = REPEATED;
+                }
+            }
+        }
+
+        @Override
+        public void row(int id, String name, double marks) {
+            int i = index.get(id);
+            if (i < 0) {
+                inserted.add(new Student(id, name, marks));
+                return;
+            }
+            Student s = students[i];
+            if (state[i] != UNSEEN) {
+                replace(i, id);
+                inserted.add(new Student(id, name, marks));
+            } else if (!s.getName().equals(name)) {
+                state[i] = RENAMED;
+                remove(id);
+                inserted.add(new Student(id, name, marks));
+            } else if (Double.compare(s.getMarks(), marks) != 0) {
+                state[i] = MARKS_CHANGED;
+                if (changedCount == changed.length) {
+                    int grown = changedCount * 2;
+                    changed = Arrays.copyOf(changed, grown);
+                    oldMarks = Arrays.copyOf(oldMarks, grown);
+                    newMarks = Arrays.copyOf(newMarks, grown);
+                }
+                changedAt.put(id, changedCount);
+                changed[changedCount] = id;
+                oldMarks[changedCount] = s.getMarks();
+                newMarks[changedCount++] = marks;
+            } else {
+                state[i] = UNCHANGED;
+            }
+        }
+
+        RosterDelta build() {
+            int kept = 0;
+            for (int k = 0; k < changedCount; k++) {
+                if (state[index.get(changed[k])] == MARKS_CHANGED) {
+                    changed[kept] = changed[k];
+                    oldMarks[kept] = oldMarks[k];
+                    newMarks[kept++] = newMarks[k];
+                }
+            }
+            changedCount = kept;
+            for (int i = 0; i < count; i++) {
+                if (state[i] == UNSEEN || state[i] == REPEATED) {
+                    remove(students[i].getId());
+                }
+            }
+            return new RosterDelta(this);
+        }
+
+        // Switch an id to remove-and-insert, taking back what its first
+        // incoming row turned into: that row is inserted ahead of the next
+        private void replace(int i, int id) {
+            Student s = students[i];
+            switch (state[i]) {
+                case REPLACED:
+                    return;
+                case UNCHANGED:
+                    remove(id);
+                    inserted.add(new Student(id, s.getName(), s.getMarks()));
+                    break;
+                case MARKS_CHANGED:
+                    remove(id);
+                    inserted.add(new Student(id, s.getName(), newMarks[changedAt.get(id)]));
+                    break;
+                case RENAMED:
+                    break;                      // already removed, its row already inserted
+                default:
+                    remove(id);                 // REPEATED: the current roster has several rows for it
+                    break;
+            }
+            state[i] = REPLACED;
+        }
+
+        private void remove(int id) {
+            if (removedCount == removed.length) {
+                removed = Arrays.copyOf(removed, removedCount * 2);
+            }
+            removed[removedCount++] = id;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.aiiqlabs.lib.io;
+
+// On-disk roster formats.
+//
+// CSV:         one "id,name,marks" line per student, optional header line, no
+//              quoting; names with a comma or a line break cannot be exported
+// FIXED_WIDTH: aligned text columns for people to read; export only
+// BINARY:      little-endian; "STRB" magic + version int, then blocks of
+//              [int payload bytes][int record count] followed by records of
+//              [int id][double marks][byte name length][UTF-8 name].
+//              Blocks are self-delimiting so a reader can split the file
+//              between them and parse the pieces in parallel.
+public enum RosterFormat {
+
+    CSV,
+
+    FIXED_WIDTH,
+
+    BINARY;
+
+    static final int BINARY_MAGIC = 0x53545242;     // "STRB"
+    static final int BINARY_VERSION = 1;
+    static final int BINARY_HEADER_BYTES = 8;
+    static final int BLOCK_HEADER_BYTES = 8;
+    static final int MAX_NAME_BYTES = 255;
+}
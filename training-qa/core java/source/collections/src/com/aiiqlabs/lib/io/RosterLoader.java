@@ -0,0 +1,438 @@
+package com.aiiqlabs.lib.io;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import com.aiiqlabs.lib.list.StudentManager;
+import com.aiiqlabs.modal.Student;
+
+// Bulk roster loader. The file is cut into chunks of a few MB that are
+// memory-mapped and parsed in parallel on a fork-join pool; ids and marks are
+// parsed straight from the bytes and repeated names share one String, so the
+// only per-row allocation is the String for a name not seen recently.
+// load() hands rows over in file order once every chunk is parsed, after the
+// target is pre-sized; read() streams them, a chunk at a time as they finish.
+public class RosterLoader {
+
+    // Receives parsed rows in file order, on the calling thread
+    public interface RowHandler {
+        void row(int id, String name, double marks);
+    }
+
+    private static final int DEFAULT_CHUNK_BYTES = 8 << 20;
+    private static final int MAX_LINE_BYTES = 4096;
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18
+    };
+
+    private final ForkJoinPool pool;
+    private final int chunkBytes;
+
+    public RosterLoader() {
+        this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_BYTES);
+    }
+
+    public RosterLoader(ForkJoinPool pool, int chunkBytes) {
+        if (chunkBytes < MAX_LINE_BYTES) {
+            throw new IllegalArgumentException("Chunks must be at least " + MAX_LINE_BYTES + " bytes");
+        }
+        this.pool = pool;
+        this.chunkBytes = chunkBytes;
+    }
+
+    // Add every student in the file to the manager; returns how many were read
+    public int load(Path file, RosterFormat format, StudentManager target) throws IOException {
+        List<Chunk> chunks = parse(file, format);
+        int total = 0;
+        for (Chunk chunk : chunks) {
+            total += chunk.count;
+        }
+        target.ensureCapacity(target.getStudentCount() + total);
+        for (Chunk chunk : chunks) {
+            for (int i = 0; i < chunk.count; i++) {
+                target.addStudent(new Student(chunk.ids[i], chunk.names[i], chunk.marks[i]));
+            }
+        }
+        return total;
+    }
+
+    // Stream every row to the handler without building Student objects.
+    // Chunks are parsed at most twice the pool's parallelism ahead of the
+    // handler and dropped once handed over, so memory stays a few chunks
+    // whatever the size of the file.
+    public int read(Path file, RosterFormat format, RowHandler handler) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<RecursiveTask<Chunk>> tasks = tasks(channel, format);
+            int ahead = Math.max(2, 2 * pool.getParallelism());
+            int forked = 0;
+            int next = 0;
+            int total = 0;
+            try {
+                for (; next < tasks.size(); next++) {
+                    while (forked < tasks.size() && forked < next + ahead) {
+                        pool.execute(tasks.get(forked++));
+                    }
+                    Chunk chunk = tasks.get(next).join();
+                    tasks.set(next, null);
+                    for (int i = 0; i < chunk.count; i++) {
+                        handler.row(chunk.ids[i], chunk.names[i], chunk.marks[i]);
+                    }
+                    total += chunk.count;
+                }
+                return total;
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                // Stop chunks that will not be handed over, e.g. after a bad line
+                for (int i = next; i < forked; i++) {
+                    if (tasks.get(i) != null) {
+                        tasks.get(i).cancel(false);
+                    }
+                }
+            }
+        }
+    }
+
+    private List<Chunk> parse(Path file, RosterFormat format) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<RecursiveTask<Chunk>> tasks = tasks(channel, format);
+            try {
+                return pool.invoke(new ParseAll(tasks));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    private List<RecursiveTask<Chunk>> tasks(FileChannel channel, RosterFormat format) throws IOException {
+        switch (format) {
+            case CSV:
+                return csvTasks(channel);
+            case BINARY:
+                return binaryTasks(channel);
+            default:
+                throw new IllegalArgumentException(format + " rosters cannot be loaded");
+        }
+    }
+
+    private List<RecursiveTask<Chunk>> csvTasks(FileChannel channel) throws IOException {
+        long size = channel.size();
+        List<RecursiveTask<Chunk>> tasks = new ArrayList<>();
+        for (long start = 0; start < size; start += chunkBytes) {
+            long from = start;
+            long to = Math.min(size, start + chunkBytes);
+            tasks.add(task(() -> parseCsv(channel, from, to, size)));
+        }
+        return tasks;
+    }
+
+    // Walk the block headers (a few bytes per 64 KB) and group blocks into chunks
+    private List<RecursiveTask<Chunk>> binaryTasks(FileChannel channel) throws IOException {
+        long size = channel.size();
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, RosterFormat.BINARY_HEADER_BYTES));
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        if (size < RosterFormat.BINARY_HEADER_BYTES || header.getInt(0) != RosterFormat.BINARY_MAGIC
+                || header.getInt(4) != RosterFormat.BINARY_VERSION) {
+            throw new IOException("Not a binary roster file");
+        }
+        List<RecursiveTask<Chunk>> tasks = new ArrayList<>();
+        ByteBuffer blockHeader = ByteBuffer.allocate(RosterFormat.BLOCK_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        long chunkStart = RosterFormat.BINARY_HEADER_BYTES;
+        long pos = chunkStart;
+        while (pos < size) {
+            blockHeader.clear();
+            channel.read(blockHeader, pos);
+            if (blockHeader.position() < RosterFormat.BLOCK_HEADER_BYTES) {
+                throw new IOException("Truncated block header at " + pos);
+            }
+            pos += RosterFormat.BLOCK_HEADER_BYTES + blockHeader.getInt(0);
+            if (pos > size) {
+                throw new IOException("Truncated block ending at " + pos);
+            }
+            if (pos - chunkStart >= chunkBytes || pos == size) {
+                long from = chunkStart;
+                long to = pos;
+                tasks.add(task(() -> parseBinary(channel, from, to)));
+                chunkStart = pos;
+            }
+        }
+        return tasks;
+    }
+
+    // Parses the lines that start inside [start, end)
+    private static Chunk parseCsv(FileChannel channel, long start, long end, long fileSize) throws IOException {
+        long mapStart = start == 0 ? 0 : start - 1;
+        long mapEnd = Math.min(fileSize, end + MAX_LINE_BYTES);
+        MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, mapStart, mapEnd - mapStart);
+        int limit = buf.limit();
+        int lastLineStart = (int) (end - mapStart);
+        int pos = 0;
+        if (start > 0) {
+            // The previous chunk owns any line that started before us
+            while (pos < limit && buf.get(pos) != '\n') {
+                pos++;
+            }
+            pos++;
+        } else if (limit > 0 && !isNumberStart(buf.get(0))) {
+            pos = skipLine(buf, 0, limit);       // header
+        }
+
+        Chunk chunk = new Chunk((int) ((end - start) / 24) + 16);
+        NameCache names = new NameCache();
+        while (pos < lastLineStart && pos < limit) {
+            byte first = buf.get(pos);
+            if (first == '\n' || first == '\r') {
+                pos++;
+                continue;
+            }
+            int lineStart = pos;
+
+            // id
+            boolean negative = first == '-';
+            if (negative) {
+                pos++;
+            }
+            int digitsStart = pos;
+            long id = 0;
+            long maxId = negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE;
+            byte b;
+            while (pos < limit && (b = buf.get(pos)) != ',') {
+                if (b < '0' || b > '9') {
+                    throw badLine(buf, lineStart, limit, start);
+                }
+                id = id * 10 + (b - '0');
+                if (id > maxId) {
+                    throw badLine(buf, lineStart, limit, start);       // not an int
+                }
+                pos++;
+            }
+            if (pos >= limit || pos == digitsStart) {
+                throw badLine(buf, lineStart, limit, start);       // no comma, or no digits
+            }
+            pos++;
+
+            // name
+            int nameStart = pos;
+            while (pos < limit && buf.get(pos) != ',') {
+                pos++;
+            }
+            if (pos >= limit) {
+                throw badLine(buf, lineStart, limit, start);
+            }
+            String name = names.get(buf, nameStart, pos - nameStart);
+            pos++;
+
+            // marks
+            int marksStart = pos;
+            while (pos < limit && (b = buf.get(pos)) != '\n' && b != '\r') {
+                pos++;
+            }
+            if (pos >= limit && mapEnd < fileSize) {
+                throw new IOException("Line longer than " + MAX_LINE_BYTES + " bytes near offset " + (mapStart + lineStart));
+            }
+            double marks;
+            try {
+                marks = parseMarks(buf, marksStart, pos);
+            } catch (NumberFormatException e) {
+                throw badLine(buf, lineStart, limit, start);
+            }
+            chunk.add((int) (negative ? -id : id), name, marks);
+            pos = skipLine(buf, pos, limit);
+        }
+        return chunk;
+    }
+
+    private static Chunk parseBinary(FileChannel channel, long start, long end) throws IOException {
+        MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+        Chunk chunk = new Chunk((int) ((end - start) / 20) + 16);
+        NameCache names = new NameCache();
+        int pos = 0;
+        int limit = buf.limit();
+        while (pos < limit) {
+            int records = buf.getInt(pos + 4);
+            pos += RosterFormat.BLOCK_HEADER_BYTES;
+            for (int r = 0; r < records; r++) {
+                int id = buf.getInt(pos);
+                double marks = buf.getDouble(pos + 4);
+                int nameLength = buf.get(pos + 12) & 0xFF;
+                String name = names.get(buf, pos + 13, nameLength);
+                chunk.add(id, name, marks);
+                pos += 13 + nameLength;
+            }
+        }
+        return chunk;
+    }
+
+    // Plain decimals ("85", "-3.25") are parsed in place; anything else falls back
+    // to Double.parseDouble, which throws NumberFormatException for an empty or
+    // malformed field. mantissa / 10^scale is correctly rounded for the fast
+    // path, so both give the same double.
+    private static double parseMarks(MappedByteBuffer buf, int from, int to) {
+        int pos = from;
+        boolean negative = pos < to && buf.get(pos) == '-';
+        if (negative) {
+            pos++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = -1;
+        for (; pos < to; pos++) {
+            byte b = buf.get(pos);
+            if (b >= '0' && b <= '9') {
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (scale >= 0) {
+                    scale++;
+                }
+            } else if (b == '.' && scale < 0) {
+                scale = 0;
+            } else {
+                digits = Integer.MAX_VALUE;     // exponent, spaces, ... -> slow path
+                break;
+            }
+        }
+        if (digits == 0 || digits > 15) {
+            byte[] text = new byte[to - from];
+            buf.get(from, text);
+            return Double.parseDouble(new String(text, StandardCharsets.US_ASCII).trim());
+        }
+        double value = scale > 0 ? mantissa / POWERS_OF_TEN[scale] : mantissa;
+        return negative ? -value : value;
+    }
+
+    private static boolean isNumberStart(byte b) {
+        return b == '-' || (b >= '0' && b <= '9');
+    }
+
+    private static int skipLine(MappedByteBuffer buf, int pos, int limit) {
+        while (pos < limit && buf.get(pos) != '\n') {
+            pos++;
+        }
+        return pos + 1;
+    }
+
+    private static IOException badLine(MappedByteBuffer buf, int lineStart, int limit, long chunkStart) {
+        int end = lineStart;
+        while (end < limit && end - lineStart < 80 && buf.get(end) != '\n') {
+            end++;
+        }
+        byte[] text = new byte[end - lineStart];
+        buf.get(lineStart, text);
+        return new IOException("Bad roster line in chunk at " + chunkStart + ": " + new String(text, StandardCharsets.UTF_8));
+    }
+
+    private interface ChunkParser {
+        Chunk parse() throws IOException;
+    }
+
+    private static RecursiveTask<Chunk> task(ChunkParser parser) {
+        return new RecursiveTask<Chunk>() {
+            @Override
+            protected Chunk compute() {
+                try {
+                    return parser.parse();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+
+    // Forks every chunk and joins them back in file order
+    private static class ParseAll extends RecursiveTask<List<Chunk>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<RecursiveTask<Chunk>> tasks;
+
+        ParseAll(List<RecursiveTask<Chunk>> tasks) {
+            this.tasks = tasks;
+        }
+
+        @Override
+        protected List<Chunk> compute() {
+            invokeAll(tasks);
+            List<Chunk> chunks = new ArrayList<>(tasks.size());
+            for (RecursiveTask<Chunk> task : tasks) {
+                chunks.add(task.join());
+            }
+            return chunks;
+        }
+    }
+
+    // Parsed rows of one chunk, column by column
+    private static class Chunk {
+        int[] ids;
+        double[] marks;
+        String[] names;
+        int count;
+
+        Chunk(int expectedRows) {
+            ids = new int[expectedRows];
+            marks = new double[expectedRows];
+            names = new String[expectedRows];
+        }
+
+        void add(int id, String name, double mark) {
+            if (count == ids.length) {
+                int capacity = count + (count >> 1) + 16;
+                ids = Arrays.copyOf(ids, capacity);
+                marks = Arrays.copyOf(marks, capacity);
+                names = Arrays.copyOf(names, capacity);
+            }
+            ids[count] = id;
+            marks[count] = mark;
+            names[count] = name;
+            count++;
+        }
+    }
+
+    // Direct-mapped cache from name bytes to String, so a roster with repeated
+    // names builds each String once per chunk instead of once per row
+    private static class NameCache {
+        private static final int SLOTS = 1024;
+        private final byte[][] keys = new byte[SLOTS][];
+        private final String[] values = new String[SLOTS];
+
+        String get(MappedByteBuffer buf, int from, int length) {
+            int hash = 1;
+            for (int i = 0; i < length; i++) {
+                hash = 31 * hash + buf.get(from + i);
+            }
+            int slot = (hash ^ (hash >>> 16)) & (SLOTS - 1);
+            byte[] key = keys[slot];
+            if (key != null && key.length == length && matches(key, buf, from)) {
+                return values[slot];
+            }
+            byte[] bytes = new byte[length];
+            buf.get(from, bytes);
+            String name = new String(bytes, StandardCharsets.UTF_8);
+            keys[slot] = bytes;
+            values[slot] = name;
+            return name;
+        }
+
+        private static boolean matches(byte[] key, MappedByteBuffer buf, int from) {
+            for (int i = 0; i < key.length; i++) {
+                if (key[i] != buf.get(from + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
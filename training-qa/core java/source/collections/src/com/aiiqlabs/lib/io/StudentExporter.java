@@ -0,0 +1,400 @@
+package com.aiiqlabs.lib.io;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+import com.aiiqlabs.lib.list.StudentManager;
+import com.aiiqlabs.modal.Student;
+
+// Streams students to an Appendable or a WritableByteChannel through one
+// reusable buffer. Rows are formatted straight into the buffer - numbers
+// digit by digit, names via String.getChars - so a dump costs no Strings per
+// row and one write per buffer, not one synchronized println per student.
+//
+//   try (StudentExporter.Writer out = new StudentExporter(RosterFormat.CSV).to(channel)) {
+//       manager.forEachStudent(out);
+//   }
+public class StudentExporter {
+
+    private static final int DEFAULT_BUFFER = 64 * 1024;
+    private static final int ID_WIDTH = 10;
+    private static final int NAME_WIDTH = 24;
+    private static final int MARKS_WIDTH = 10;
+    private static final int MAX_FAST_DECIMALS = 6;
+    private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6 };
+
+    private final RosterFormat format;
+    private final int bufferSize;
+
+    public StudentExporter(RosterFormat format) {
+        this(format, DEFAULT_BUFFER);
+    }
+
+    public StudentExporter(RosterFormat format, int bufferSize) {
+        if (bufferSize < 1024) {
+            throw new IllegalArgumentException("Buffer must be at least 1024 bytes");
+        }
+        this.format = format;
+        this.bufferSize = bufferSize;
+    }
+
+    // Whole roster, in roster order; returns the number of students written
+    public long export(StudentManager manager, WritableByteChannel out) throws IOException {
+        try (Writer writer = to(out)) {
+            return drain(manager, writer);
+        }
+    }
+
+    public long export(StudentManager manager, Appendable out) throws IOException {
+        try (Writer writer = to(out)) {
+            return drain(manager, writer);
+        }
+    }
+
+    public Writer to(WritableByteChannel out) throws IOException {
+        return format == RosterFormat.BINARY ? new BinaryWriter(out, bufferSize) : new TextWriter(format, out, null, bufferSize);
+    }
+
+    public Writer to(Appendable out) throws IOException {
+        if (format == RosterFormat.BINARY) {
+            throw new IllegalArgumentException("Binary rosters need a byte channel");
+        }
+        return new TextWriter(format, null, out, bufferSize);
+    }
+
+    private static long drain(StudentManager manager, Writer writer) throws IOException {
+        try {
+            manager.forEachStudent(writer);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return writer.getRowCount();
+    }
+
+    // Accepts students one at a time; I/O errors surface as UncheckedIOException
+    // from accept and as IOException from close
+    public abstract static class Writer implements Consumer<Student>, AutoCloseable {
+
+        private long rows;
+
+        @Override
+        public void accept(Student s) {
+            try {
+                write(s);
+                rows++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        public long getRowCount() {
+            return rows;
+        }
+
+        abstract void write(Student s) throws IOException;
+
+        // Push out whatever is buffered
+        public abstract void flush() throws IOException;
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+
+    // CSV and FIXED_WIDTH: rows are built in a char[]; channels get it UTF-8 encoded
+    private static class TextWriter extends Writer {
+
+        private final boolean fixedWidth;
+        private final WritableByteChannel channel;
+        private final Appendable appendable;
+        private final char[] chars;
+        private final CharBuffer charView;
+        private final char[] field = new char[32];
+        private ByteBuffer bytes;
+        private CharsetEncoder encoder;
+        private int pos;
+
+        TextWriter(RosterFormat format, WritableByteChannel channel, Appendable appendable, int bufferSize)
+                throws IOException {
+            this.fixedWidth = format == RosterFormat.FIXED_WIDTH;
+            this.channel = channel;
+            this.appendable = appendable;
+            this.chars = new char[bufferSize];
+            this.charView = CharBuffer.wrap(chars);
+            if (channel != null) {
+                bytes = ByteBuffer.allocate(bufferSize * 3);
+                encoder = StandardCharsets.UTF_8.newEncoder();
+            }
+            writeHeader();
+        }
+
+        private void writeHeader() throws IOException {
+            if (fixedWidth) {
+                padLeft("ID", ID_WIDTH);
+                put(' ');
+                padRight("NAME", NAME_WIDTH);
+                put(' ');
+                padLeft("MARKS", MARKS_WIDTH);
+            } else {
+                put("id,name,marks");
+            }
+            put('\n');
+        }
+
+        @Override
+        void write(Student s) throws IOException {
+            String name = s.getName();
+            // Longest possible row: id, separators, marks and the name itself
+            if (pos + name.length() + 64 > chars.length) {
+                flush();
+                if (name.length() + 64 > chars.length) {
+                    throw new IOException("Name too long for the export buffer: " + name.length() + " chars");
+                }
+            }
+            if (fixedWidth) {
+                int length = formatInt(s.getId(), field);
+                padLeft(field, length, ID_WIDTH);
+                put(' ');
+                padRight(name, NAME_WIDTH);
+                put(' ');
+                length = formatMarks(s.getMarks(), field);
+                padLeft(field, length, MARKS_WIDTH);
+            } else {
+                int rowStart = pos;
+                pos += formatInt(s.getId(), chars, pos);
+                put(',');
+                put(name);
+                // CSV is not quoted, so these would split the row when loaded back
+                for (int i = pos - name.length(); i < pos; i++) {
+                    if (chars[i] == ',' || chars[i] == '\n' || chars[i] == '\r') {
+                        pos = rowStart;
+                        throw new IOException("Name cannot be written to CSV (comma or line break): " + name);
+                    }
+                }
+                put(',');
+                pos += formatMarks(s.getMarks(), chars, pos);
+            }
+            put('\n');
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (pos == 0) {
+                return;
+            }
+            if (appendable != null) {
+                appendable.append(charView, 0, pos);
+            } else {
+                charView.limit(pos).position(0);
+                while (true) {
+                    CoderResult result = encoder.encode(charView, bytes, false);
+                    writeBytes();
+                    if (result.isUnderflow()) {
+                        break;
+                    }
+                }
+                charView.clear();
+            }
+            pos = 0;
+        }
+
+        private void writeBytes() throws IOException {
+            bytes.flip();
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            bytes.clear();
+        }
+
+        private void put(char c) {
+            chars[pos++] = c;
+        }
+
+        private void put(String s) {
+            s.getChars(0, s.length(), chars, pos);
+            pos += s.length();
+        }
+
+        private void padLeft(char[] src, int length, int width) {
+            for (int i = length; i < width; i++) {
+                put(' ');
+            }
+            System.arraycopy(src, 0, chars, pos, length);
+            pos += length;
+        }
+
+        private void padLeft(String s, int width) {
+            for (int i = s.length(); i < width; i++) {
+                put(' ');
+            }
+            put(s);
+        }
+
+        // Longer names are cut to the column width
+        private void padRight(String s, int width) {
+            int length = Math.min(s.length(), width);
+            s.getChars(0, length, chars, pos);
+            pos += length;
+            for (int i = length; i < width; i++) {
+                put(' ');
+            }
+        }
+    }
+
+    // BINARY: records go straight into a block-sized ByteBuffer
+    private static class BinaryWriter extends Writer {
+
+        private final WritableByteChannel channel;
+        private final ByteBuffer block;
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        private char[] nameChars = new char[64];
+        private CharBuffer nameView = CharBuffer.wrap(nameChars);
+        private int blockRecords;
+
+        BinaryWriter(WritableByteChannel channel, int bufferSize) throws IOException {
+            this.channel = channel;
+            this.block = ByteBuffer.allocate(bufferSize).order(ByteOrder.LITTLE_ENDIAN);
+            ByteBuffer header = ByteBuffer.allocate(RosterFormat.BINARY_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(RosterFormat.BINARY_MAGIC).putInt(RosterFormat.BINARY_VERSION).flip();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            startBlock();
+        }
+
+        @Override
+        void write(Student s) throws IOException {
+            String name = s.getName();
+            int length = name.length();
+            if (length > RosterFormat.MAX_NAME_BYTES) {
+                throw new IOException("Name longer than " + RosterFormat.MAX_NAME_BYTES + " bytes: " + name);
+            }
+            if (block.remaining() < 13 + 3 * length) {
+                flush();
+            }
+            if (length > nameChars.length) {
+                nameChars = new char[Math.max(length, nameChars.length * 2)];
+                nameView = CharBuffer.wrap(nameChars);
+            }
+            name.getChars(0, length, nameChars, 0);
+            nameView.limit(length).position(0);
+
+            int start = block.position();
+            block.putInt(s.getId());
+            block.putDouble(s.getMarks());
+            block.position(start + 13);
+            encoder.reset();
+            encoder.encode(nameView, block, true);
+            int nameBytes = block.position() - start - 13;
+            if (nameBytes > RosterFormat.MAX_NAME_BYTES) {
+                throw new IOException("Name longer than " + RosterFormat.MAX_NAME_BYTES + " bytes: " + name);
+            }
+            block.put(start + 12, (byte) nameBytes);
+            blockRecords++;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (blockRecords == 0) {
+                return;
+            }
+            block.putInt(0, block.position() - RosterFormat.BLOCK_HEADER_BYTES);
+            block.putInt(4, blockRecords);
+            block.flip();
+            while (block.hasRemaining()) {
+                channel.write(block);
+            }
+            startBlock();
+        }
+
+        private void startBlock() {
+            block.clear();
+            block.position(RosterFormat.BLOCK_HEADER_BYTES);
+            blockRecords = 0;
+        }
+    }
+
+    static int formatInt(int value, char[] out) {
+        return formatInt(value, out, 0);
+    }
+
+    // Writes the decimal digits of value at out[at]; returns the length
+    static int formatInt(int value, char[] out, int at) {
+        if (value == Integer.MIN_VALUE) {
+            String min = Integer.toString(value);
+            min.getChars(0, min.length(), out, at);
+            return min.length();
+        }
+        int pos = at;
+        if (value < 0) {
+            out[pos++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (int v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        for (int i = pos + digits - 1; i >= pos; i--) {
+            out[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return pos + digits - at;
+    }
+
+    static int formatMarks(double value, char[] out) {
+        return formatMarks(value, out, 0);
+    }
+
+    // Shortest decimal with up to 6 places that reads back as exactly this
+    // double ("85.5", "90.0"); other values fall back to Double.toString
+    static int formatMarks(double value, char[] out, int at) {
+        if (Math.abs(value) < 1e9) {
+            for (int decimals = 1; decimals <= MAX_FAST_DECIMALS; decimals++) {
+                double scale = POWERS_OF_TEN[decimals];
+                long scaled = Math.round(value * scale);
+                if (scaled / scale == value) {
+                    return formatFixed(scaled, decimals, out, at);
+                }
+            }
+        }
+        String text = Double.toString(value);
+        text.getChars(0, text.length(), out, at);
+        return text.length();
+    }
+
+    private static int formatFixed(long scaled, int decimals, char[] out, int at) {
+        int pos = at;
+        if (scaled < 0) {
+            out[pos++] = '-';
+            scaled = -scaled;
+        }
+        int digits = 1;
+        for (long v = scaled; v >= 10; v /= 10) {
+            digits++;
+        }
+        if (digits <= decimals) {
+            digits = decimals + 1;      // leading "0."
+        }
+        int end = pos + digits + 1;
+        int i = end - 1;
+        for (int d = 0; d < decimals; d++) {
+            out[i--] = (char) ('0' + scaled % 10);
+            scaled /= 10;
+        }
+        out[i--] = '.';
+        while (i >= pos) {
+            out[i--] = (char) ('0' + scaled % 10);
+            scaled /= 10;
+        }
+        return end - at;
+    }
+}
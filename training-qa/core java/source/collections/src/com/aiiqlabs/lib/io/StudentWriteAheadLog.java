@@ -0,0 +1,483 @@
+package com.aiiqlabs.lib.io;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import com.aiiqlabs.lib.list.StudentChangeInterceptor;
+import com.aiiqlabs.lib.list.StudentManager;
+import com.aiiqlabs.modal.Student;
+
+// Makes a StudentManager durable: every add, marks update and remove is
+// appended to a log and fsync'ed before it is applied to the roster.
+//
+// The log intercepts each change under the id's lock in the manager, so each
+// id's records are in the order its changes are applied. A change whose
+// record cannot be made durable is rejected before it is applied, and once
+// the log has failed it rejects every later change, so the roster never runs
+// ahead of the log; reopen the log to carry on. A record is what the caller
+// asked for - an update or remove of an id that is not there replays as the
+// same no-op. A record can reach the disk even though its fsync failed and
+// the change was rejected, so after a crash such a change may come back.
+//
+// Group commit - writers append to a shared buffer and then wait for the
+// durable position to pass their record. Whoever finds no flush in progress
+// becomes the leader, writes everything buffered so far and fsyncs once, so N
+// concurrent writers share one fsync instead of paying N. A bulk call appends
+// all of its records and waits once.
+//
+// Snapshots - checkpoint() switches to a new log segment, writes the roster as
+// a BINARY roster file and then deletes the older segments. Replay is
+// idempotent (add replaces, update sets, remove removes), so records that are
+// both in the snapshot and in the newer segment are harmless.
+//
+// Replay re-adds students by id, so only rosters keyed by id can be logged;
+// open() refuses ARRAY, LINKED, VECTOR and AUTO, which would end up with
+// duplicates.
+//
+// Directory layout: snapshot.bin, wal-<n>.log (records in order)
+// Record: [int length][int crc32][byte type][int id][double marks][byte name length][name]
+public class StudentWriteAheadLog implements StudentChangeInterceptor, AutoCloseable {
+
+    private static final String SNAPSHOT = "snapshot.bin";
+    private static final byte ADDED = 1;
+    private static final byte MARKS_UPDATED = 2;
+    private static final byte REMOVED = 3;
+    private static final int RECORD_HEADER = 8;
+    private static final int MAX_RECORD = RECORD_HEADER + 14 + RosterFormat.MAX_NAME_BYTES;
+
+    private final Path directory;
+    private final StudentManager manager;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushed = lock.newCondition();
+    private final CRC32 crc = new CRC32();
+
+    private FileChannel segment;
+    private long segmentNumber;
+    private ByteBuffer pending = newBuffer();
+    private ByteBuffer writing = newBuffer();
+    private long appendedPosition;
+    private long durablePosition;
+    private boolean flushing;
+    private IOException failure;
+
+    // Records of the bulk call in progress, appended together at batchEnd();
+    // null outside one. Needs no lock: a bulk call holds every id's lock in
+    // the manager, so nothing else reaches the log until it ends.
+    private ByteBuffer batch;
+    private int batchRecords;
+    private final CRC32 batchCrc = new CRC32();
+    private volatile Exception snapshotFailure;
+    private long syncCount;
+    private long recordCount;
+    private ScheduledExecutorService snapshots;
+
+    private StudentWriteAheadLog(Path directory, StudentManager manager) {
+        this.directory = directory;
+        this.manager = manager;
+    }
+
+    // Restore the manager from the snapshot and log in the directory, then log
+    // every later change. The manager should be empty and not yet shared.
+    public static StudentWriteAheadLog open(Path directory, StudentManager manager) throws IOException {
+        if (!manager.isKeyedById()) {
+            throw new IllegalArgumentException(
+                    "StudentWriteAheadLog needs a roster keyed by id, not ARRAY, LINKED, VECTOR or AUTO");
+        }
+        Files.createDirectories(directory);
+        StudentWriteAheadLog wal = new StudentWriteAheadLog(directory, manager);
+        wal.recover();
+        manager.addChangeInterceptor(wal);
+        return wal;
+    }
+
+    @Override
+    public void beforeAdd(Student s) {
+        append(ADDED, s.getId(), s.getMarks(), s.getName());
+    }
+
+    @Override
+    public void beforeMarksUpdate(int id, double newMarks) {
+        append(MARKS_UPDATED, id, newMarks, null);
+    }
+
+    @Override
+    public void beforeRemove(int id) {
+        append(REMOVED, id, 0, null);
+    }
+
+    @Override
+    public void batchStart() {
+        batch = newBuffer();
+        batchRecords = 0;
+    }
+
+    // One wait for the whole bulk call
+    @Override
+    public void batchEnd() {
+        ByteBuffer records = batch;
+        batch = null;
+        lock.lock();
+        try {
+            checkNotFailed();
+            records.flip();
+            pending = ensureRoom(pending, records.remaining());
+            appendedPosition += records.remaining();
+            pending.put(records);
+            recordCount += batchRecords;
+            awaitDurable(appendedPosition);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Write a snapshot and drop the log segments it covers. For backends that
+    // are not thread-safe, call this from the thread that owns the manager.
+    public void checkpoint() throws IOException {
+        long covered;
+        lock.lock();
+        try {
+            if (failure != null) {
+                throw new IOException("Write-ahead log failed earlier", failure);
+            }
+            awaitIdle();
+            flushPendingLocked();
+            covered = segmentNumber;
+            segment.close();
+            segment = openSegment(++segmentNumber);
+        } finally {
+            lock.unlock();
+        }
+
+        Path temp = directory.resolve(SNAPSHOT + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            new StudentExporter(RosterFormat.BINARY).export(manager, out);
+            out.force(true);
+        }
+        Files.move(temp, directory.resolve(SNAPSHOT), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        for (long number : segmentNumbers()) {
+            if (number <= covered) {
+                Files.deleteIfExists(segmentPath(number));
+            }
+        }
+    }
+
+    // Checkpoint in the background every period; only for thread-safe backends.
+    // A failed checkpoint is kept in getSnapshotFailure() and the next one
+    // still runs.
+    public void scheduleSnapshots(long period, TimeUnit unit) {
+        if (snapshots == null) {
+            snapshots = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "student-wal-snapshot");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        snapshots.scheduleWithFixedDelay(() -> {
+            try {
+                checkpoint();
+                snapshotFailure = null;
+            } catch (IOException | RuntimeException e) {
+                snapshotFailure = e;    // thrown, it would cancel every later run
+            }
+        }, period, period, unit);
+    }
+
+    // Why the last scheduled checkpoint failed, or null if it succeeded
+    public Exception getSnapshotFailure() {
+        return snapshotFailure;
+    }
+
+    // Number of fsyncs so far; with many writers this stays well below getRecordCount()
+    public long getSyncCount() {
+        lock.lock();
+        try {
+            return syncCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Why the log stopped taking changes, or null while it works
+    public IOException getFailure() {
+        lock.lock();
+        try {
+            return failure;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getRecordCount() {
+        lock.lock();
+        try {
+            return recordCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // A log that has failed is closed without flushing what it still buffers
+    @Override
+    public void close() throws IOException {
+        manager.removeChangeInterceptor(this);
+        if (snapshots != null) {
+            snapshots.shutdownNow();
+        }
+        lock.lock();
+        try {
+            awaitIdle();
+            if (failure == null) {
+                flushPendingLocked();
+            }
+            segment.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void append(byte type, int id, double marks, String name) {
+        byte[] nameBytes = name == null ? null : name.getBytes(StandardCharsets.UTF_8);
+        if (nameBytes != null && nameBytes.length > RosterFormat.MAX_NAME_BYTES) {
+            throw new IllegalArgumentException("Name longer than " + RosterFormat.MAX_NAME_BYTES + " bytes: " + name);
+        }
+        if (batch != null) {
+            batch = ensureRoom(batch, MAX_RECORD);
+            encode(batch, batchCrc, type, id, marks, nameBytes);
+            batchRecords++;
+            return;
+        }
+        lock.lock();
+        try {
+            checkNotFailed();
+            pending = ensureRoom(pending, MAX_RECORD);
+            appendedPosition += encode(pending, crc, type, id, marks, nameBytes);
+            recordCount++;
+            awaitDurable(appendedPosition);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Called with the lock held
+    private void checkNotFailed() {
+        if (failure != null) {
+            throw new UncheckedIOException("Write-ahead log failed earlier", failure);
+        }
+    }
+
+    // Called with the lock held; leads or waits for flushes until position is durable
+    private void awaitDurable(long position) {
+        while (durablePosition < position) {
+            if (failure != null) {
+                throw new UncheckedIOException("Write-ahead log failed", failure);
+            }
+            if (flushing) {
+                flushed.awaitUninterruptibly();
+            } else {
+                leadFlush();
+            }
+        }
+    }
+
+    private static ByteBuffer ensureRoom(ByteBuffer buffer, int bytes) {
+        if (buffer.remaining() >= bytes) {
+            return buffer;
+        }
+        ByteBuffer bigger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.flip();
+        return bigger.put(buffer);
+    }
+
+    // Called with the lock held; releases it while writing so other writers
+    // can keep appending to the next batch
+    private void leadFlush() {
+        flushing = true;
+        ByteBuffer batch = pending;
+        pending = writing;
+        writing = batch;
+        long batchEnd = appendedPosition;
+        FileChannel channel = segment;
+        lock.unlock();
+        IOException error = null;
+        try {
+            batch.flip();
+            while (batch.hasRemaining()) {
+                channel.write(batch);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            error = e;
+        } finally {
+            lock.lock();
+        }
+        batch.clear();
+        flushing = false;
+        if (error != null) {
+            failure = error;
+        } else {
+            durablePosition = batchEnd;
+            syncCount++;
+        }
+        flushed.signalAll();
+    }
+
+    private void awaitIdle() {
+        while (flushing) {
+            flushed.awaitUninterruptibly();
+        }
+    }
+
+    private void flushPendingLocked() throws IOException {
+        if (pending.position() > 0) {
+            pending.flip();
+            while (pending.hasRemaining()) {
+                segment.write(pending);
+            }
+            pending.clear();
+        }
+        segment.force(false);
+        durablePosition = appendedPosition;
+    }
+
+    private static int encode(ByteBuffer out, CRC32 crc, byte type, int id, double marks, byte[] name) {
+        int start = out.position();
+        out.position(start + RECORD_HEADER);
+        out.put(type).putInt(id).putDouble(marks);
+        int nameLength = name == null ? 0 : name.length;
+        out.put((byte) nameLength);
+        if (name != null) {
+            out.put(name);
+        }
+        int payload = out.position() - start - RECORD_HEADER;
+        crc.reset();
+        crc.update(out.array(), out.arrayOffset() + start + RECORD_HEADER, payload);
+        out.putInt(start, payload);
+        out.putInt(start + 4, (int) crc.getValue());
+        return RECORD_HEADER + payload;
+    }
+
+    private void recover() throws IOException {
+        Path snapshot = directory.resolve(SNAPSHOT);
+        if (Files.exists(snapshot)) {
+            new RosterLoader().load(snapshot, RosterFormat.BINARY, manager);
+        }
+        List<Long> numbers = segmentNumbers();
+        // Every open starts a new segment, so the one a crash tore may be
+        // followed by empty ones
+        int lastWritten = numbers.size() - 1;
+        while (lastWritten > 0 && Files.size(segmentPath(numbers.get(lastWritten))) == 0) {
+            lastWritten--;
+        }
+        for (int i = 0; i < numbers.size(); i++) {
+            Path file = segmentPath(numbers.get(i));
+            replay(file, i >= lastWritten);
+            if (Files.size(file) == 0) {
+                Files.delete(file);
+            }
+        }
+        segmentNumber = numbers.isEmpty() ? 1 : numbers.get(numbers.size() - 1) + 1;
+        segment = openSegment(segmentNumber);
+    }
+
+    // Applies records until the end or the first torn/corrupt one; a torn tail
+    // on the newest segment is cut off
+    private void replay(Path file, boolean newest) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            ByteBuffer buf = ByteBuffer.allocate((int) Math.min(size, Integer.MAX_VALUE)).order(ByteOrder.LITTLE_ENDIAN);
+            while (buf.hasRemaining() && channel.read(buf) >= 0) {
+                // keep reading
+            }
+            buf.flip();
+            int good = 0;
+            while (buf.remaining() >= RECORD_HEADER) {
+                int payload = buf.getInt(good);
+                int expectedCrc = buf.getInt(good + 4);
+                if (payload < 14 || payload > MAX_RECORD || good + RECORD_HEADER + payload > buf.limit()) {
+                    break;
+                }
+                crc.reset();
+                crc.update(buf.array(), good + RECORD_HEADER, payload);
+                if ((int) crc.getValue() != expectedCrc) {
+                    break;
+                }
+                apply(buf, good + RECORD_HEADER);
+                good += RECORD_HEADER + payload;
+                buf.position(good);
+            }
+            if (good < size) {
+                if (!newest) {
+                    throw new IOException("Corrupt record in " + file + " at " + good);
+                }
+                channel.truncate(good);
+            }
+        }
+    }
+
+    private void apply(ByteBuffer buf, int at) {
+        byte type = buf.get(at);
+        int id = buf.getInt(at + 1);
+        double marks = buf.getDouble(at + 5);
+        switch (type) {
+            case ADDED:
+                int nameLength = buf.get(at + 13) & 0xFF;
+                String name = new String(buf.array(), at + 14, nameLength, StandardCharsets.UTF_8);
+                manager.addStudent(new Student(id, name, marks));
+                break;
+            case MARKS_UPDATED:
+                manager.updateMarks(id, marks);
+                break;
+            case REMOVED:
+                manager.removeStudentById(id);
+                break;
+            default:
+                throw new IllegalStateException("Unknown log record type " + type);
+        }
+    }
+
+    private FileChannel openSegment(long number) throws IOException {
+        return FileChannel.open(segmentPath(number),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private Path segmentPath(long number) {
+        return directory.resolve(String.format("wal-%08d.log", number));
+    }
+
+    private List<Long> segmentNumbers() throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "wal-*.log")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                numbers.add(Long.parseLong(name.substring(4, name.length() - 4)));
+            }
+        }
+        Collections.sort(numbers);
+        return numbers;
+    }
+
+    private static ByteBuffer newBuffer() {
+        return ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
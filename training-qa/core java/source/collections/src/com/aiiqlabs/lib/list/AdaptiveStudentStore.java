@@ -0,0 +1,663 @@
+package com.aiiqlabs.lib.list;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+
+import com.aiiqlabs.modal.Student;
+
+// AUTO roster - starts as ARRAY and moves itself to INDEXED or CONCURRENT (and
+// back) as the workload changes, so the caller does not have to guess.
+//
+// Every call is counted into a window of up to WINDOW_OPS calls or
+// WINDOW_NANOS, whichever ends first. At the end of a window the roster size
+// and operation mix are priced against each representation with a rough
+// per-operation cost model (a find on ARRAY costs about half a scan, on
+// INDEXED a hash lookup). A move happens when the same representation has won
+// two windows in a row and what it saves over them pays for copying the roster.
+// Writers from more than one thread pick CONCURRENT, so they stop queueing on
+// a single write lock.
+//
+// A move runs on a background thread. Under the read lock it only takes the
+// roster's students, in insertion order, into a list - a reference per
+// student, no hashing - and then builds the new store from that list with no
+// lock held, so readers and writers carry on during the expensive part. Adds
+// and removes made meanwhile are noted and replayed; that replay and the
+// switch are the only time everyone is held off. Off ARRAY or INDEXED, writers
+// also wait for the reference pass. getMigrations() lists every move, with the
+// window that justified it and what it cost.
+//
+// Behaves like ARRAY: ids may repeat, adds append, and a remove takes every
+// student with that id. INDEXED and CONCURRENT key by id, so they are only used
+// while ids are unique; adding a duplicate id moves the roster back to ARRAY
+// straight away, in the same order ARRAY would have kept.
+// Safe for concurrent use.
+public class AdaptiveStudentStore implements StudentStore {
+
+    public static final int WINDOW_OPS = 16_384;
+    public static final long WINDOW_NANOS = 20_000_000;
+
+    private static final int ADD = 0;
+    private static final int FIND = 1;
+    private static final int UPDATE = 2;
+    private static final int REMOVE = 3;
+    private static final int BULK = 4;
+    private static final int SCAN = 5;
+
+    // Where the roster currently lives. Changed only under the write lock.
+    private enum Kind {
+        ARRAY(false) {
+            StudentStore newStore() {
+                return new ListStudentStore(new ArrayList<>());
+            }
+
+            // Nanoseconds; a find stops halfway on average, a remove always scans
+            double cost(Window w, int size) {
+                return w.adds * 10.0 + (w.finds + w.updates) * 0.5 * size + w.removes * 1.5 * size
+                        + w.bulkCalls * 1.5 * size + w.bulkIds * 5.0 + w.scanned;
+            }
+        },
+        INDEXED(false) {
+            StudentStore newStore() {
+                return new IndexedStudentStore();
+            }
+
+            double cost(Window w, int size) {
+                return w.adds * 60.0 + (w.finds + w.updates) * 25.0 + w.removes * 40.0 + w.bulkIds * 30.0
+                        + w.scanned * 4.0;
+            }
+        },
+        CONCURRENT(true) {
+            StudentStore newStore() {
+                return new ConcurrentStudentStore();
+            }
+
+            double cost(Window w, int size) {
+                return w.adds * 250.0 + (w.finds + w.updates) * 40.0 + w.removes * 300.0 + w.bulkIds * 60.0
+                        + w.scanned * 15.0;
+            }
+        };
+
+        // Thread-safe stores let writers share the read lock
+        final boolean threadSafe;
+
+        Kind(boolean threadSafe) {
+            this.threadSafe = threadSafe;
+        }
+
+        abstract StudentStore newStore();
+
+        abstract double cost(Window w, int size);
+    }
+
+    private static final class Backend {
+        final Kind kind;
+        final StudentStore store;
+
+        Backend(Kind kind, StudentStore store) {
+            this.kind = kind;
+            this.store = store;
+        }
+    }
+
+    // Held shared by readers, and by writers when the store is thread-safe;
+    // held exclusively by other writers and to switch backends
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile Backend backend = new Backend(Kind.ARRAY, Kind.ARRAY.newStore());
+    private final List<Migration> migrations = new CopyOnWriteArrayList<>();
+
+    // Adds and removes made while a move is building its store, replayed
+    // before the switch. Null when not copying. Marks updates need no replay:
+    // both stores hold the same Student objects.
+    private volatile Queue<Change> changedDuringCopy;
+    private final AtomicBoolean migrating = new AtomicBoolean();
+    private Thread migrator;
+    private volatile boolean closed;
+
+    // Repeated ids last seen, less the removes since; keyed stores are not
+    // tried again until enough removes might have cleared them. Each copy
+    // called off for repeats doubles the wait.
+    private volatile int repeats;
+    private int calledOff;
+
+    // Counts for the current window. Updated without synchronization: a lost
+    // increment only blurs the sample.
+    private final AtomicBoolean evaluating = new AtomicBoolean();
+    private int ops;
+    private int adds;
+    private int finds;
+    private int updates;
+    private int removes;
+    private int bulkCalls;
+    private long bulkIds;
+    private long scanned;
+    private int otherThreadWrites;
+    private Thread windowOwner;
+    private long windowStart = System.nanoTime();
+    private Kind lastChoice;
+
+    @Override
+    public Student addStudent(Student s) {
+        count(ADD, 1);
+        Student replaced;
+        Lock l = acquire(true);
+        try {
+            Backend b = backend;
+            replaced = b.store.addStudent(s);
+            changed(s.getId(), s);
+            if (replaced == null || b.kind == Kind.ARRAY) {
+                return null;
+            }
+        } finally {
+            l.unlock();
+        }
+        restoreDuplicate(replaced, s);
+        return null;
+    }
+
+    @Override
+    public boolean removeStudentById(int id, Consumer<? super Student> removed) {
+        count(REMOVE, 1);
+        Lock l = acquire(true);
+        try {
+            boolean found = backend.store.removeStudentById(id, removed);
+            changed(id, null);
+            if (found && repeats > 0) {
+                repeats--;
+            }
+            return found;
+        } finally {
+            l.unlock();
+        }
+    }
+
+    @Override
+    public Student findStudentById(int id) {
+        count(FIND, 1);
+        Lock l = acquire(false);
+        try {
+            return backend.store.findStudentById(id);
+        } finally {
+            l.unlock();
+        }
+    }
+
+    @Override
+    public boolean updateMarks(int id, double newMarks) {
+        count(UPDATE, 1);
+        Lock l = acquire(true);
+        try {
+            return backend.store.updateMarks(id, newMarks);
+        } finally {
+            l.unlock();
+        }
+    }
+
+    @Override
+    public int updateMarks(int[] ids, double[] marks, MarksChange changed) {
+        count(BULK, ids.length);
+        Lock l = acquire(true);
+        try {
+            return backend.store.updateMarks(ids, marks, changed);
+        } finally {
+            l.unlock();
+        }
+    }
+
+    @Override
+    public int removeStudentsByIds(int[] ids, Consumer<? super Student> removed) {
+        count(BULK, ids.length);
+        Lock l = acquire(true);
+        try {
+            int count = backend.store.removeStudentsByIds(ids, removed);
+            for (int id : ids) {
+                changed(id, null);
+            }
+            if (repeats > 0) {
+                repeats = Math.max(0, repeats - count);
+            }
+            return count;
+        } finally {
+            l.unlock();
+        }
+    }
+
+    @Override
+    public void forEach(Consumer<? super Student> action) {
+        Lock l = acquire(false);
+        try {
+            count(SCAN, backend.store.getStudentCount());
+            backend.store.forEach(action);
+        } finally {
+            l.unlock();
+        }
+    }
+
+    @Override
+    public void forEachMarks(DoubleConsumer action) {
+        Lock l = acquire(false);
+        try {
+            count(SCAN, backend.store.getStudentCount());
+            backend.store.forEachMarks(action);
+        } finally {
+            l.unlock();
+        }
+    }
+
+    @Override
+    public boolean isKeyedById() {
+        return false;
+    }
+
+    @Override
+    public int getStudentCount() {
+        Lock l = acquire(false);
+        try {
+            return backend.store.getStudentCount();
+        } finally {
+            l.unlock();
+        }
+    }
+
+    @Override
+    public void ensureCapacity(int expectedStudents) {
+        Lock l = acquire(true);
+        try {
+            backend.store.ensureCapacity(expectedStudents);
+        } finally {
+            l.unlock();
+        }
+    }
+
+    // ARRAY, INDEXED or CONCURRENT
+    public String getType() {
+        return backend.kind.name();
+    }
+
+    // Every move so far, oldest first
+    public List<Migration> getMigrations() {
+        return Collections.unmodifiableList(new ArrayList<>(migrations));
+    }
+
+    // Let a running move finish, then stop moving
+    @Override
+    public void close() {
+        closed = true;
+        Thread running;
+        synchronized (this) {
+            running = migrator;
+        }
+        if (running != null) {
+            try {
+                running.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        Lock l = acquire(true);
+        try {
+            backend.store.close();
+        } finally {
+            l.unlock();
+        }
+    }
+
+    // One move between representations, or an attempt that was called off
+    public static final class Migration {
+
+        private final long timeMillis;
+        private final String from;
+        private final String to;
+        private final int students;
+        private final String reason;
+        private final boolean completed;
+        private final long copyNanos;
+        private final long pauseNanos;
+
+        Migration(String from, String to, int students, String reason, boolean completed, long copyNanos,
+                long pauseNanos) {
+            this.timeMillis = System.currentTimeMillis();
+            this.from = from;
+            this.to = to;
+            this.students = students;
+            this.reason = reason;
+            this.completed = completed;
+            this.copyNanos = copyNanos;
+            this.pauseNanos = pauseNanos;
+        }
+
+        public long getTimeMillis() { return timeMillis; }
+        public String getFrom() { return from; }
+        public String getTo() { return to; }
+        public int getStudents() { return students; }
+        public String getReason() { return reason; }
+        public boolean isCompleted() { return completed; }
+        // Time spent taking the students and building the new store; off ARRAY
+        // or INDEXED writers waited for the first, a reference per student
+        public long getCopyNanos() { return copyNanos; }
+        // Time everyone was held off for the replay and the switch
+        public long getPauseNanos() { return pauseNanos; }
+
+        @Override
+        public String toString() {
+            return String.format("%s -> %s%s, %,d students, copy %.2f ms, pause %.3f ms: %s", from, to,
+                    completed ? "" : " (called off)", students, copyNanos / 1e6, pauseNanos / 1e6, reason);
+        }
+    }
+
+    // The lock this call needs for the backend it will find once it holds it
+    private Lock acquire(boolean write) {
+        while (true) {
+            Backend b = backend;
+            Lock l = write && !b.kind.threadSafe ? lock.writeLock() : lock.readLock();
+            l.lock();
+            if (backend == b) {
+                return l;
+            }
+            l.unlock();
+        }
+    }
+
+    // added is null for a remove
+    private void changed(int id, Student added) {
+        Queue<Change> log = changedDuringCopy;
+        if (log != null) {
+            log.add(new Change(id, added));
+        }
+    }
+
+    private void count(int op, int n) {
+        Thread me = Thread.currentThread();
+        Thread owner = windowOwner;
+        if (owner == null) {
+            windowOwner = me;
+        } else if (owner != me && op != FIND && op != SCAN) {
+            otherThreadWrites++;
+        }
+        switch (op) {
+            case ADD:
+                adds++;
+                break;
+            case FIND:
+                finds++;
+                break;
+            case UPDATE:
+                updates++;
+                break;
+            case REMOVE:
+                removes++;
+                break;
+            case BULK:
+                bulkCalls++;
+                bulkIds += n;
+                break;
+            default:
+                scanned += n;
+                break;
+        }
+        int done = ++ops;
+        if (done >= WINDOW_OPS || ((done & 63) == 0 && System.nanoTime() - windowStart >= WINDOW_NANOS)) {
+            endWindow();
+        }
+    }
+
+    private void endWindow() {
+        if (!evaluating.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            Window w = new Window();
+            resetWindow();
+            if (w.ops >= 64 && !closed && !migrating.get()) {
+                decide(w, backend.kind);
+            }
+        } finally {
+            evaluating.set(false);
+        }
+    }
+
+    private void resetWindow() {
+        ops = adds = finds = updates = removes = bulkCalls = otherThreadWrites = 0;
+        bulkIds = scanned = 0;
+        windowOwner = null;
+        windowStart = System.nanoTime();
+    }
+
+    private void decide(Window w, Kind current) {
+        int size = backend.store.getStudentCount();
+        Kind best;
+        if (repeats > 0) {
+            best = Kind.ARRAY;
+        } else if (w.otherThreadWrites * 100L >= w.ops) {
+            best = Kind.CONCURRENT;
+        } else {
+            best = Kind.ARRAY.cost(w, size) <= Kind.INDEXED.cost(w, size) ? Kind.ARRAY : Kind.INDEXED;
+        }
+        Kind previous = lastChoice;
+        lastChoice = best;
+        if (best == current || best != previous) {
+            return;
+        }
+        // Two windows of savings must cover about 30 ns a student for the copy
+        double saving = 2 * (current.cost(w, size) - best.cost(w, size));
+        boolean threadsChanged = best == Kind.CONCURRENT || current == Kind.CONCURRENT;
+        if (!threadsChanged && saving < size * 30.0) {
+            return;
+        }
+        String reason = best == Kind.CONCURRENT
+                ? w.describe(size) + "; writers on more than one thread"
+                : String.format("%s; est. %s %.2f ms vs %s %.2f ms per window", w.describe(size),
+                        current, current.cost(w, size) / 1e6, best, best.cost(w, size) / 1e6);
+        startMigration(best, reason);
+    }
+
+    private void startMigration(Kind to, String reason) {
+        if (!migrating.compareAndSet(false, true)) {
+            return;
+        }
+        Backend from = backend;
+        Thread t = new Thread(() -> {
+            try {
+                migrate(from, to, reason);
+            } finally {
+                migrating.set(false);
+            }
+        }, "student-auto-migrate");
+        t.setDaemon(true);
+        synchronized (this) {
+            migrator = t;
+        }
+        t.start();
+    }
+
+    // Take the students under the read lock, build the new store unlocked,
+    // then replay what changed meanwhile and switch under the write lock
+    private void migrate(Backend from, Kind to, String reason) {
+        Queue<Change> log = new ConcurrentLinkedQueue<>();
+        long start = System.nanoTime();
+        List<Student> taken;
+        lock.readLock().lock();
+        try {
+            if (backend != from || closed) {
+                return;
+            }
+            changedDuringCopy = log;
+            taken = new ArrayList<>(from.store.getStudentCount());
+            from.store.forEach(taken::add);
+        } finally {
+            lock.readLock().unlock();
+        }
+        int students = taken.size();
+        StudentStore target = to.newStore();
+        target.ensureCapacity(students);
+        int repeated = 0;
+        for (Student s : taken) {
+            if (target.addStudent(s) != null) {
+                repeated++;
+            }
+        }
+        long copied = System.nanoTime();
+
+        lock.writeLock().lock();
+        try {
+            changedDuringCopy = null;
+            String callOff = null;
+            if (backend != from) {
+                callOff = "roster changed representation during the copy";
+            } else if (closed) {
+                callOff = "roster closed during the copy";
+            } else if (from.kind.threadSafe) {
+                replayTouched(log, from.store, target);
+            } else {
+                repeated += replay(log, target);
+            }
+            if (callOff == null && repeated > 0) {
+                repeats = repeated << Math.min(calledOff++, 10);
+                callOff = String.format("%,d ids repeat, only ARRAY can hold them", repeated);
+            }
+            if (callOff != null) {
+                migrations.add(new Migration(from.kind.name(), to.name(), students, callOff, false,
+                        copied - start, System.nanoTime() - copied));
+                return;
+            }
+            backend = new Backend(to, target);
+            calledOff = 0;
+            migrations.add(new Migration(from.kind.name(), to.name(), students, reason, true, copied - start,
+                    System.nanoTime() - copied));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        from.store.close();
+    }
+
+    // Bring the new store up to date with the writes made while it was built;
+    // returns how many ids they repeated. Writers waited for the students to
+    // be taken, so every logged write came after it and can simply be redone.
+    private static int replay(Queue<Change> log, StudentStore target) {
+        int repeated = 0;
+        for (Change change : log) {
+            if (change.added == null) {
+                target.removeStudentById(change.id, null);
+            } else if (target.addStudent(change.added) != null && target.isKeyedById()) {
+                repeated++;
+            }
+        }
+        return repeated;
+    }
+
+    // As replay, for a thread-safe source whose writers raced the taking, so
+    // a logged write may or may not be in the copy already: each touched id
+    // gets the student the source holds now. A student removed and added
+    // again goes to the end, as it did in the source. A list target drops
+    // every touched id first, so as not to repeat one the copy already holds.
+    private static void replayTouched(Queue<Change> log, StudentStore source, StudentStore target) {
+        Map<Integer, Boolean> touched = new LinkedHashMap<>();
+        for (Change change : log) {
+            boolean removed = change.added == null || Boolean.TRUE.equals(touched.remove(change.id));
+            touched.put(change.id, removed);
+        }
+        if (touched.isEmpty()) {
+            return;
+        }
+        int[] ids = new int[touched.size()];
+        int n = 0;
+        for (int id : touched.keySet()) {
+            ids[n++] = id;
+        }
+        boolean keyed = target.isKeyedById();
+        if (!keyed) {
+            target.removeStudentsByIds(ids, null);
+        }
+        int i = 0;
+        for (Map.Entry<Integer, Boolean> e : touched.entrySet()) {
+            Student s = source.findStudentById(ids[i++]);
+            if (keyed && (e.getValue() || s == null)) {
+                target.removeStudentById(e.getKey(), null);
+            }
+            if (s != null) {
+                target.addStudent(s);
+            }
+        }
+    }
+
+    // A keyed store just swallowed a repeated id: rebuild as ARRAY with the
+    // old student back in its place and the new one at the end
+    private void restoreDuplicate(Student replaced, Student added) {
+        lock.writeLock().lock();
+        long start = System.nanoTime();
+        try {
+            Backend from = backend;
+            if (from.kind == Kind.ARRAY) {
+                return;
+            }
+            StudentStore list = Kind.ARRAY.newStore();
+            list.ensureCapacity(from.store.getStudentCount() + 1);
+            boolean[] present = { false };
+            from.store.forEach(s -> {
+                if (s == added) {
+                    present[0] = true;
+                    list.addStudent(replaced);
+                } else {
+                    list.addStudent(s);
+                }
+            });
+            if (present[0]) {
+                list.addStudent(added);
+            }
+            backend = new Backend(Kind.ARRAY, list);
+            repeats = 1;
+            lastChoice = Kind.ARRAY;
+            migrations.add(new Migration(from.kind.name(), Kind.ARRAY.name(), list.getStudentCount(),
+                    "id " + added.getId() + " added twice", true, 0, System.nanoTime() - start));
+            from.store.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // An add, or a remove when added is null
+    private static final class Change {
+        final int id;
+        final Student added;
+
+        Change(int id, Student added) {
+            this.id = id;
+            this.added = added;
+        }
+    }
+
+    // The counts of the window that just ended
+    private final class Window {
+        final int ops = AdaptiveStudentStore.this.ops;
+        final int adds = AdaptiveStudentStore.this.adds;
+        final int finds = AdaptiveStudentStore.this.finds;
+        final int updates = AdaptiveStudentStore.this.updates;
+        final int removes = AdaptiveStudentStore.this.removes;
+        final int bulkCalls = AdaptiveStudentStore.this.bulkCalls;
+        final long bulkIds = AdaptiveStudentStore.this.bulkIds;
+        final long scanned = AdaptiveStudentStore.this.scanned;
+        final int otherThreadWrites = AdaptiveStudentStore.this.otherThreadWrites;
+        final long nanos = System.nanoTime() - windowStart;
+
+        String describe(int size) {
+            return String.format("%,d calls in %.1f ms on %,d students: %d%% add, %d%% find, %d%% update, "
+                    + "%d%% remove, %d%% bulk, %,d scanned, %d%% writes from other threads",
+                    ops, nanos / 1e6, size, percent(adds), percent(finds), percent(updates), percent(removes),
+                    percent(bulkCalls), scanned, percent(otherThreadWrites));
+        }
+
+        private long percent(int n) {
+            return Math.round(n * 100.0 / Math.max(1, ops));
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.aiiqlabs.lib.list;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+
+import com.aiiqlabs.lib.util.IntIntHashMap;
+import com.aiiqlabs.modal.Student;
+
+// COLUMNAR roster - no Student objects are kept. Each row is an id, a mark and
+// a code into a shared name dictionary, stored in parallel primitive arrays,
+// so a student costs 16 bytes of columns plus an index slot instead of a
+// Student, a name String and a list slot. Student objects are only built as
+// views when asked for. Ids are unique keys, as in the INDEXED roster.
+public class ColumnarStudentStore implements StudentStore {
+
+    private static final int REMOVED = -1;
+
+    private int[] ids;
+    private double[] marks;
+    private int[] nameCodes;            // REMOVED for deleted rows
+    private int rows;                   // rows used, including deleted ones
+    private int liveRows;
+
+    private IntIntHashMap rowById;      // id -> row
+    private Map<String, Integer> codeByName;
+    private List<String> names;         // code -> name
+
+    public ColumnarStudentStore() {
+        this(16);
+    }
+
+    public ColumnarStudentStore(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 1);
+        ids = new int[capacity];
+        marks = new double[capacity];
+        nameCodes = new int[capacity];
+        rowById = new IntIntHashMap(capacity);
+        codeByName = new HashMap<>();
+        names = new ArrayList<>();
+    }
+
+    @Override
+    public Student addStudent(Student s) {
+        int existing = rowById.get(s.getId());
+        if (existing >= 0) {
+            Student replaced = detached(existing);
+            marks[existing] = s.getMarks();
+            nameCodes[existing] = encode(s.getName());
+            return replaced;
+        }
+        if (rows == ids.length) {
+            grow(rows + 1);
+        }
+        ids[rows] = s.getId();
+        marks[rows] = s.getMarks();
+        nameCodes[rows] = encode(s.getName());
+        rowById.put(s.getId(), rows);
+        rows++;
+        liveRows++;
+        return null;
+    }
+
+    @Override
+    public boolean removeStudentById(int id, Consumer<? super Student> removed) {
+        int row = rowById.remove(id);
+        if (row < 0) {
+            return false;
+        }
+        if (removed != null) {
+            removed.accept(detached(row));
+        }
+        nameCodes[row] = REMOVED;
+        liveRows--;
+        // Deleted rows are only reclaimed once they are the majority, which
+        // keeps removal O(1) amortised while preserving the row order
+        if (rows - liveRows > liveRows && rows > 64) {
+            compact();
+        }
+        return true;
+    }
+
+    @Override
+    public Student findStudentById(int id) {
+        int row = rowById.get(id);
+        return row < 0 ? null : view(row);
+    }
+
+    @Override
+    public boolean updateMarks(int id, double newMarks) {
+        int row = rowById.get(id);
+        if (row < 0) {
+            return false;
+        }
+        marks[row] = newMarks;
+        return true;
+    }
+
+    @Override
+    public void forEach(Consumer<? super Student> action) {
+        for (int row = 0; row < rows; row++) {
+            if (nameCodes[row] != REMOVED) {
+                action.accept(view(row));
+            }
+        }
+    }
+
+    @Override
+    public void forEachMarks(DoubleConsumer action) {
+        for (int row = 0; row < rows; row++) {
+            if (nameCodes[row] != REMOVED) {
+                action.accept(marks[row]);
+            }
+        }
+    }
+
+    @Override
+    public int getStudentCount() {
+        return liveRows;
+    }
+
+    @Override
+    public void ensureCapacity(int expectedStudents) {
+        if (expectedStudents > ids.length) {
+            grow(expectedStudents);
+        }
+        rowById.ensureCapacity(expectedStudents);
+    }
+
+    // Approximate heap used by the columns, the id index and the dictionary
+    public long footprintBytes() {
+        long columns = (16 + 4L * ids.length) + (16 + 8L * marks.length) + (16 + 4L * nameCodes.length);
+        long dictionary = 0;
+        for (String name : names) {
+            // String + backing array, plus one HashMap node and one list slot
+            dictionary += 24 + 16 + name.length() + 32 + 4;
+        }
+        return columns + rowById.footprintBytes() + dictionary;
+    }
+
+    private int encode(String name) {
+        Integer code = codeByName.get(name);
+        if (code == null) {
+            code = names.size();
+            names.add(name);
+            codeByName.put(name, code);
+        }
+        return code;
+    }
+
+    private Student view(int row) {
+        return new StudentView(this, ids[row], names.get(nameCodes[row]), marks[row]);
+    }
+
+    // Plain copy of a row that is about to be overwritten or removed
+    private Student detached(int row) {
+        return new Student(ids[row], names.get(nameCodes[row]), marks[row]);
+    }
+
+    private void grow(int minCapacity) {
+        int capacity = Math.max(minCapacity, ids.length + (ids.length >> 1));
+        ids = Arrays.copyOf(ids, capacity);
+        marks = Arrays.copyOf(marks, capacity);
+        nameCodes = Arrays.copyOf(nameCodes, capacity);
+    }
+
+    private void compact() {
+        int target = 0;
+        for (int row = 0; row < rows; row++) {
+            if (nameCodes[row] != REMOVED) {
+                ids[target] = ids[row];
+                marks[target] = marks[row];
+                nameCodes[target] = nameCodes[row];
+                rowById.put(ids[target], target);
+                target++;
+            }
+        }
+        rows = target;
+    }
+
+    // Flyweight handed out by find/forEach. Marks are read from and written to
+    // the column, so setMarks on a view behaves like setMarks on a stored Student.
+    private static class StudentView extends Student {
+
+        private final ColumnarStudentStore store;
+
+        StudentView(ColumnarStudentStore store, int id, String name, double marks) {
+            super(id, name, marks);
+            this.store = store;
+        }
+
+        @Override
+        public double getMarks() {
+            int row = store.rowById.get(getId());
+            return row < 0 ? super.getMarks() : store.marks[row];
+        }
+
+        @Override
+        public void setMarks(double marks) {
+            super.setMarks(marks);
+            store.updateMarks(getId(), marks);
+        }
+
+        @Override
+        public String toString() {
+            return getId() + " - " + getName() + " : " + getMarks();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.aiiqlabs.lib.list;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import com.aiiqlabs.modal.Student;
+
+// CONCURRENT roster - safe for many reader and writer threads without a global
+// lock. Lookups go through a ConcurrentHashMap (lock-free reads, per-bin locks
+// for writes); insertion order is a skip list keyed by an add sequence number,
+// so iteration never blocks writers and never throws
+// ConcurrentModificationException. Ids are unique keys, as in INDEXED.
+public class ConcurrentStudentStore implements StudentStore {
+
+    private ConcurrentHashMap<Integer, Entry> byId;
+    private ConcurrentSkipListMap<Long, Student> inOrder;
+    private AtomicLong sequence;
+
+    public ConcurrentStudentStore() {
+        byId = new ConcurrentHashMap<>();
+        inOrder = new ConcurrentSkipListMap<>();
+        sequence = new AtomicLong();
+    }
+
+    @Override
+    public Student addStudent(Student s) {
+        Student[] replaced = new Student[1];
+        // The order map is only touched while the id's bin is locked, so the
+        // two maps always agree for any one id
+        byId.compute(s.getId(), (id, existing) -> {
+            long seq;
+            if (existing != null) {
+                seq = existing.seq;
+                replaced[0] = existing.student;
+            } else {
+                seq = sequence.incrementAndGet();
+            }
+            inOrder.put(seq, s);
+            return new Entry(seq, s);
+        });
+        return replaced[0];
+    }
+
+    @Override
+    public boolean removeStudentById(int id, Consumer<? super Student> removed) {
+        Student[] gone = new Student[1];
+        byId.computeIfPresent(id, (key, existing) -> {
+            inOrder.remove(existing.seq);
+            gone[0] = existing.student;
+            return null;
+        });
+        if (gone[0] == null) {
+            return false;
+        }
+        if (removed != null) {
+            removed.accept(gone[0]);
+        }
+        return true;
+    }
+
+    @Override
+    public Student findStudentById(int id) {
+        Entry e = byId.get(id);
+        return e == null ? null : e.student;
+    }
+
+    @Override
+    public boolean updateMarks(int id, double newMarks) {
+        Entry e = byId.get(id);
+        if (e != null) {
+            e.student.setMarks(newMarks);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void forEach(Consumer<? super Student> action) {
+        for (Student s : inOrder.values()) {
+            action.accept(s);
+        }
+    }
+
+    @Override
+    public int getStudentCount() {
+        return byId.size();
+    }
+
+    private static class Entry {
+        final long seq;
+        final Student student;
+
+        Entry(long seq, Student student) {
+            this.seq = seq;
+            this.student = student;
+        }
+    }
+}
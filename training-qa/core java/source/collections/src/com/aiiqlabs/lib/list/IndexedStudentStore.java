@@ -0,0 +1,74 @@
+package com.aiiqlabs.lib.list;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import com.aiiqlabs.modal.Student;
+
+// INDEXED roster - id -> Student hash index that also remembers insertion order,
+// so find, update and remove by id are O(1) and printing keeps the add order.
+// Ids are unique keys here: adding an id that already exists replaces that
+// student but keeps its original position.
+public class IndexedStudentStore implements StudentStore {
+
+    private Map<Integer, Student> students;
+
+    public IndexedStudentStore() {
+        students = new LinkedHashMap<>();
+    }
+
+    @Override
+    public Student addStudent(Student s) {
+        return students.put(s.getId(), s);
+    }
+
+    @Override
+    public boolean removeStudentById(int id, Consumer<? super Student> removed) {
+        Student s = students.remove(id);
+        if (s == null) {
+            return false;
+        }
+        if (removed != null) {
+            removed.accept(s);
+        }
+        return true;
+    }
+
+    @Override
+    public Student findStudentById(int id) {
+        return students.get(id);
+    }
+
+    @Override
+    public boolean updateMarks(int id, double newMarks) {
+        Student s = students.get(id);
+        if (s != null) {
+            s.setMarks(newMarks);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void forEach(Consumer<? super Student> action) {
+        for (Student s : students.values()) {
+            action.accept(s);
+        }
+    }
+
+    @Override
+    public int getStudentCount() {
+        return students.size();
+    }
+
+    // LinkedHashMap cannot be resized in place, so re-home the entries once
+    @Override
+    public void ensureCapacity(int expectedStudents) {
+        if (expectedStudents > students.size()) {
+            Map<Integer, Student> sized = new LinkedHashMap<>((int) (expectedStudents / 0.75f) + 1);
+            sized.putAll(students);
+            students = sized;
+        }
+    }
+}
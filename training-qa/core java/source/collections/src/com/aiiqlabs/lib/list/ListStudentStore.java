@@ -0,0 +1,149 @@
+package com.aiiqlabs.lib.list;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Vector;
+import java.util.function.Consumer;
+
+import com.aiiqlabs.lib.util.IntIntHashMap;
+import com.aiiqlabs.modal.Student;
+
+// ARRAY, LINKED and VECTOR rosters - every lookup is a linear scan
+public class ListStudentStore implements StudentStore {
+
+    private List<Student> students;
+    private boolean lockForScans;
+
+    public ListStudentStore(List<Student> students) {
+        this.students = students;
+        // Vector locks each call but not iteration, so a scan racing a writer
+        // would throw ConcurrentModificationException; hold its monitor instead
+        this.lockForScans = students instanceof Vector;
+    }
+
+    @Override
+    public Student addStudent(Student s) {
+        students.add(s);
+        return null;
+    }
+
+    @Override
+    public boolean removeStudentById(int id, Consumer<? super Student> removed) {
+        if (removed == null) {
+            return students.removeIf(s -> s.getId() == id);
+        }
+        return students.removeIf(s -> {
+            if (s.getId() == id) {
+                removed.accept(s);
+                return true;
+            }
+            return false;
+        });
+    }
+
+    @Override
+    public Student findStudentById(int id) {
+        if (lockForScans) {
+            synchronized (students) {
+                return scan(id);
+            }
+        }
+        return scan(id);
+    }
+
+    private Student scan(int id) {
+        for (Student s : students) {
+            if (s.getId() == id) {
+                return s;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean updateMarks(int id, double newMarks) {
+        Student s = findStudentById(id);
+        if (s != null) {
+            s.setMarks(newMarks);
+            return true;
+        }
+        return false;
+    }
+
+    // One pass over the list, however many ids: each student is checked
+    // against a primitive id -> position map instead of a scan per id
+    @Override
+    public int updateMarks(int[] ids, double[] marks, MarksChange changed) {
+        IntIntHashMap positionById = new IntIntHashMap(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            positionById.put(ids[i], i);
+        }
+        if (lockForScans) {
+            synchronized (students) {
+                return updateAll(positionById, marks, changed);
+            }
+        }
+        return updateAll(positionById, marks, changed);
+    }
+
+    private int updateAll(IntIntHashMap positionById, double[] marks, MarksChange changed) {
+        int updated = 0;
+        for (Student s : students) {
+            int position = positionById.get(s.getId());
+            if (position >= 0) {
+                double oldMarks = s.getMarks();
+                s.setMarks(marks[position]);
+                if (changed != null) {
+                    changed.marksChanged(s, oldMarks, marks[position]);
+                }
+                updated++;
+            }
+        }
+        return updated;
+    }
+
+    @Override
+    public int removeStudentsByIds(int[] ids, Consumer<? super Student> removed) {
+        IntIntHashMap wanted = new IntIntHashMap(ids.length);
+        for (int id : ids) {
+            wanted.put(id, 0);
+        }
+        int[] count = { 0 };
+        students.removeIf(s -> {
+            if (!wanted.containsKey(s.getId())) {
+                return false;
+            }
+            if (removed != null) {
+                removed.accept(s);
+            }
+            count[0]++;
+            return true;
+        });
+        return count[0];
+    }
+
+    @Override
+    public void forEach(Consumer<? super Student> action) {
+        // Vector.forEach already holds the monitor for the whole pass
+        students.forEach(action);
+    }
+
+    @Override
+    public boolean isKeyedById() {
+        return false;
+    }
+
+    @Override
+    public int getStudentCount() {
+        return students.size();
+    }
+
+    @Override
+    public void ensureCapacity(int expectedStudents) {
+        if (students instanceof ArrayList) {
+            ((ArrayList<Student>) students).ensureCapacity(expectedStudents);
+        } else if (students instanceof Vector) {
+            ((Vector<Student>) students).ensureCapacity(expectedStudents);
+        }
+    }
+}
@@ -0,0 +1,474 @@
+package com.aiiqlabs.lib.list;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+
+import com.aiiqlabs.modal.Student;
+
+// Persistent roster kept in a memory-mapped file. The file holds a header,
+// fixed-size student records in insertion order and an open-addressing
+// id -> record hash table, so reopening only maps the file - nothing is parsed
+// or rebuilt - and find/update work directly against the mapped bytes.
+//
+// Layout:  header | records[capacity] | table[tableSize]
+// Record:  id (int) | marks (double) | live (byte) | name length (byte, -1 for
+//          a null name) | name (UTF-8)
+//
+// Ids are unique keys, as in the INDEXED roster; re-adding an id keeps its
+// place. A removed record stays as a dead row until dead rows outnumber live
+// ones, when the live records slide down over them in order, so churn does
+// not keep growing the file.
+//
+// The records are the truth; the live count and the table are derived. A
+// record only counts once it is whole: an append is published by raising the
+// row count, a remove is clearing the live flag, each a single write. The
+// header notes a clean close, and open() after anything else recounts and
+// rebuilds the table from the records. Replacing a record and compaction
+// write the new copy before giving up the old one, so a crash leaves at most
+// two copies of an id, and the later one is kept. That covers the process
+// dying; to survive losing power as well, call flush() at the points that
+// must not be lost.
+public class MappedStudentStore implements StudentStore {
+
+    public static final int MAX_NAME_BYTES = 50;
+
+    private static final int MAGIC = 0x53545544;    // "STUD"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int RECORD_SIZE = 64;
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    // Header offsets
+    private static final int MAGIC_AT = 0;
+    private static final int VERSION_AT = 4;
+    private static final int CAPACITY_AT = 8;
+    private static final int ROWS_AT = 12;
+    private static final int LIVE_AT = 16;
+    private static final int TABLE_SIZE_AT = 20;
+    private static final int CLOSED_AT = 24;        // 1 once close() has flushed everything
+
+    // Record offsets
+    private static final int ID_AT = 0;
+    private static final int MARKS_AT = 4;
+    private static final int LIVE_FLAG_AT = 12;
+    private static final int NAME_LENGTH_AT = 13;
+    private static final int NAME_AT = 14;
+    private static final byte NULL_NAME = -1;
+
+    // Compact once dead rows outnumber live ones and there are at least this many
+    private static final int MIN_DEAD_TO_COMPACT = 64;
+
+    private final FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private int tableSize;
+    private int tableAt;
+
+    private MappedStudentStore(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    // Open an existing roster file, or create an empty one
+    public static MappedStudentStore open(Path file) throws IOException {
+        return open(file, DEFAULT_CAPACITY);
+    }
+
+    public static MappedStudentStore open(Path file, int initialCapacity) throws IOException {
+        boolean exists = Files.exists(file) && Files.size(file) > 0;
+        FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedStudentStore store = new MappedStudentStore(channel);
+        try {
+            if (exists) {
+                store.attach();
+            } else {
+                store.format(Math.max(initialCapacity, 1));
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return store;
+    }
+
+    @Override
+    public Student addStudent(Student s) {
+        byte[] name = encodeName(s.getName());
+        int existing = rowOf(s.getId());
+        if (existing >= 0) {
+            Student replaced = read(existing);
+            replace(existing, s.getId(), s.getMarks(), name);
+            return replaced;
+        }
+        int row = spareRow();
+        writeRecord(row, s.getId(), s.getMarks(), name);
+        buffer.putInt(ROWS_AT, row + 1);        // the student exists from here
+        insertSlot(s.getId(), row);
+        buffer.putInt(LIVE_AT, buffer.getInt(LIVE_AT) + 1);
+        return null;
+    }
+
+    @Override
+    public boolean removeStudentById(int id, Consumer<? super Student> removed) {
+        int slot = slotOf(id);
+        if (slot < 0) {
+            return false;
+        }
+        int row = buffer.getInt(slotAt(slot)) - 1;
+        if (removed != null) {
+            removed.accept(read(row));
+        }
+        buffer.put(recordAt(row) + LIVE_FLAG_AT, (byte) 0);     // the student is gone from here
+        deleteSlot(slot);
+        int live = buffer.getInt(LIVE_AT) - 1;
+        buffer.putInt(LIVE_AT, live);
+        int dead = buffer.getInt(ROWS_AT) - live;
+        if (dead > live && dead >= MIN_DEAD_TO_COMPACT) {
+            compact();
+        }
+        return true;
+    }
+
+    @Override
+    public Student findStudentById(int id) {
+        int row = rowOf(id);
+        return row < 0 ? null : view(row);
+    }
+
+    @Override
+    public boolean updateMarks(int id, double newMarks) {
+        int row = rowOf(id);
+        if (row < 0) {
+            return false;
+        }
+        buffer.putDouble(recordAt(row) + MARKS_AT, newMarks);
+        return true;
+    }
+
+    @Override
+    public void forEach(Consumer<? super Student> action) {
+        int rows = buffer.getInt(ROWS_AT);
+        for (int row = 0; row < rows; row++) {
+            if (buffer.get(recordAt(row) + LIVE_FLAG_AT) != 0) {
+                action.accept(view(row));
+            }
+        }
+    }
+
+    @Override
+    public void forEachMarks(DoubleConsumer action) {
+        int rows = buffer.getInt(ROWS_AT);
+        for (int row = 0; row < rows; row++) {
+            int at = recordAt(row);
+            if (buffer.get(at + LIVE_FLAG_AT) != 0) {
+                action.accept(buffer.getDouble(at + MARKS_AT));
+            }
+        }
+    }
+
+    @Override
+    public int getStudentCount() {
+        return buffer.getInt(LIVE_AT);
+    }
+
+    @Override
+    public void ensureCapacity(int expectedStudents) {
+        int needed = expectedStudents + (buffer.getInt(ROWS_AT) - buffer.getInt(LIVE_AT));
+        if (needed > capacity) {
+            resize(needed);
+        }
+    }
+
+    // Push dirty pages to disk
+    public void flush() {
+        buffer.force();
+    }
+
+    @Override
+    public void close() {
+        try {
+            buffer.force();
+            buffer.putInt(CLOSED_AT, 1);
+            buffer.force();
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void format(int initialCapacity) throws IOException {
+        map(initialCapacity, tableSizeFor(initialCapacity));
+        buffer.putInt(MAGIC_AT, MAGIC);
+        buffer.putInt(VERSION_AT, VERSION);
+        buffer.putInt(CAPACITY_AT, capacity);
+        buffer.putInt(ROWS_AT, 0);
+        buffer.putInt(LIVE_AT, 0);
+        buffer.putInt(TABLE_SIZE_AT, tableSize);
+        buffer.putInt(CLOSED_AT, 0);
+    }
+
+    // The table size follows from the capacity, so a crash between writing
+    // the two cannot leave them disagreeing
+    private void attach() throws IOException {
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        if (header.getInt(MAGIC_AT) != MAGIC || header.getInt(VERSION_AT) != VERSION) {
+            throw new IOException("Not a student roster file");
+        }
+        int storedCapacity = header.getInt(CAPACITY_AT);
+        map(storedCapacity, tableSizeFor(storedCapacity));
+        if (buffer.getInt(ROWS_AT) > capacity) {
+            throw new IOException("Corrupt student roster file: more rows than capacity");
+        }
+        if (buffer.getInt(CLOSED_AT) != 1) {
+            rebuildTable();
+        }
+        buffer.putInt(CLOSED_AT, 0);
+    }
+
+    private void map(int newCapacity, int newTableSize) throws IOException {
+        long size = HEADER_SIZE + (long) newCapacity * RECORD_SIZE + 4L * newTableSize;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Roster file would exceed 2 GB");
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        capacity = newCapacity;
+        tableSize = newTableSize;
+        tableAt = HEADER_SIZE + newCapacity * RECORD_SIZE;
+    }
+
+    // Records keep their offsets; only the table moves and is rebuilt. Until
+    // the new capacity is written the old table is still whole.
+    private void resize(int newCapacity) {
+        try {
+            map(newCapacity, tableSizeFor(newCapacity));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        rebuildTable();
+        buffer.putInt(TABLE_SIZE_AT, tableSize);
+        buffer.putInt(CAPACITY_AT, capacity);
+    }
+
+    // The first row past the end, growing the file if it is full
+    private int spareRow() {
+        int row = buffer.getInt(ROWS_AT);
+        if (row == capacity) {
+            resize(capacity * 2);
+        }
+        return row;
+    }
+
+    // Overwrite a live record by way of a copy in the spare row: while the
+    // copy counts, a crash part way through the overwrite leaves two records
+    // for the id and the later, whole one is kept
+    private void replace(int row, int id, double marks, byte[] name) {
+        int spare = spareRow();
+        writeRecord(spare, id, marks, name);
+        buffer.putInt(ROWS_AT, spare + 1);
+        writeRecord(row, id, marks, name);
+        buffer.putInt(ROWS_AT, spare);
+    }
+
+    // Slide the live records down over the dead ones, in order. Each is copied
+    // before its old row is cleared, and every row written over is already
+    // dead, so a crash leaves at most one record in two places.
+    private void compact() {
+        byte[] record = new byte[RECORD_SIZE];
+        int rows = buffer.getInt(ROWS_AT);
+        int kept = 0;
+        for (int row = 0; row < rows; row++) {
+            int at = recordAt(row);
+            if (buffer.get(at + LIVE_FLAG_AT) == 0) {
+                continue;
+            }
+            if (kept != row) {
+                int to = recordAt(kept);
+                buffer.get(at, record);
+                record[LIVE_FLAG_AT] = 0;
+                buffer.put(to, record);
+                buffer.put(to + LIVE_FLAG_AT, (byte) 1);
+                buffer.put(at + LIVE_FLAG_AT, (byte) 0);
+            }
+            kept++;
+        }
+        buffer.putInt(ROWS_AT, kept);
+        rebuildTable();
+    }
+
+    // Refill the table and the live count from the records. An id found live
+    // twice is left from a crash in replace() or compact(); the later row wins.
+    private void rebuildTable() {
+        for (int slot = 0; slot < tableSize; slot++) {
+            buffer.putInt(slotAt(slot), 0);
+        }
+        int rows = buffer.getInt(ROWS_AT);
+        int live = 0;
+        for (int row = 0; row < rows; row++) {
+            int at = recordAt(row);
+            if (buffer.get(at + LIVE_FLAG_AT) == 0) {
+                continue;
+            }
+            int id = buffer.getInt(at + ID_AT);
+            int slot = slotOf(id);
+            if (slot >= 0) {
+                buffer.put(recordAt(buffer.getInt(slotAt(slot)) - 1) + LIVE_FLAG_AT, (byte) 0);
+                buffer.putInt(slotAt(slot), row + 1);
+            } else {
+                insertSlot(id, row);
+                live++;
+            }
+        }
+        buffer.putInt(LIVE_AT, live);
+    }
+
+    // The live flag goes last: a dead row being written over does not count
+    // until the record in it is whole
+    private void writeRecord(int row, int id, double marks, byte[] name) {
+        int at = recordAt(row);
+        buffer.putInt(at + ID_AT, id);
+        buffer.putDouble(at + MARKS_AT, marks);
+        if (name == null) {
+            buffer.put(at + NAME_LENGTH_AT, NULL_NAME);
+        } else {
+            buffer.put(at + NAME_LENGTH_AT, (byte) name.length);
+            buffer.put(at + NAME_AT, name, 0, name.length);
+        }
+        buffer.put(at + LIVE_FLAG_AT, (byte) 1);
+    }
+
+    private Student view(int row) {
+        int at = recordAt(row);
+        return new StudentView(this, buffer.getInt(at + ID_AT), readName(at), buffer.getDouble(at + MARKS_AT));
+    }
+
+    // Plain copy of a record that is about to be overwritten or removed
+    private Student read(int row) {
+        int at = recordAt(row);
+        return new Student(buffer.getInt(at + ID_AT), readName(at), buffer.getDouble(at + MARKS_AT));
+    }
+
+    private String readName(int at) {
+        byte length = buffer.get(at + NAME_LENGTH_AT);
+        if (length == NULL_NAME) {
+            return null;
+        }
+        byte[] name = new byte[length];
+        buffer.get(at + NAME_AT, name, 0, name.length);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    private int rowOf(int id) {
+        int slot = slotOf(id);
+        return slot < 0 ? -1 : buffer.getInt(slotAt(slot)) - 1;
+    }
+
+    private int slotOf(int id) {
+        int mask = tableSize - 1;
+        int slot = hash(id) & mask;
+        int entry;
+        while ((entry = buffer.getInt(slotAt(slot))) != 0) {
+            if (buffer.getInt(recordAt(entry - 1) + ID_AT) == id) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void insertSlot(int id, int row) {
+        int mask = tableSize - 1;
+        int slot = hash(id) & mask;
+        while (buffer.getInt(slotAt(slot)) != 0) {
+            slot = (slot + 1) & mask;
+        }
+        buffer.putInt(slotAt(slot), row + 1);
+    }
+
+    // Backward-shift deletion, as in IntIntHashMap
+    private void deleteSlot(int hole) {
+        int mask = tableSize - 1;
+        int slot = hole;
+        while (true) {
+            slot = (slot + 1) & mask;
+            int entry = buffer.getInt(slotAt(slot));
+            if (entry == 0) {
+                break;
+            }
+            int home = hash(buffer.getInt(recordAt(entry - 1) + ID_AT)) & mask;
+            boolean movable = hole <= slot ? (home <= hole || home > slot) : (home <= hole && home > slot);
+            if (movable) {
+                buffer.putInt(slotAt(hole), entry);
+                hole = slot;
+            }
+        }
+        buffer.putInt(slotAt(hole), 0);
+    }
+
+    private int recordAt(int row) {
+        return HEADER_SIZE + row * RECORD_SIZE;
+    }
+
+    private int slotAt(int slot) {
+        return tableAt + slot * 4;
+    }
+
+    // null for a null name
+    private static byte[] encodeName(String name) {
+        if (name == null) {
+            return null;
+        }
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_NAME_BYTES) {
+            throw new IllegalArgumentException("Name longer than " + MAX_NAME_BYTES + " bytes: " + name);
+        }
+        return bytes;
+    }
+
+    private static int tableSizeFor(int capacity) {
+        return Integer.highestOneBit(Math.max(capacity, 2) - 1) << 2;
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    // Student handed out by find/forEach; marks are read from and written to the file
+    private static class StudentView extends Student {
+
+        private final MappedStudentStore store;
+
+        StudentView(MappedStudentStore store, int id, String name, double marks) {
+            super(id, name, marks);
+            this.store = store;
+        }
+
+        @Override
+        public double getMarks() {
+            int row = store.rowOf(getId());
+            return row < 0 ? super.getMarks() : store.buffer.getDouble(store.recordAt(row) + MARKS_AT);
+        }
+
+        @Override
+        public void setMarks(double marks) {
+            super.setMarks(marks);
+            store.updateMarks(getId(), marks);
+        }
+
+        @Override
+        public String toString() {
+            return getId() + " - " + getName() + " : " + getMarks();
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.aiiqlabs.lib.list;
+
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+
+import com.aiiqlabs.modal.Student;
+
+// Immutable roster version. Every change returns a new version that shares
+// all untouched structure with the old one, so keeping old versions around
+// (snapshots) costs only the paths that changed.
+//
+// Students sit in insertion order in a 32-way trie of slots (a persistent
+// vector); removing leaves an empty slot, and the slots are re-packed once
+// most of them are empty. Ids map to slots through a hash array mapped trie
+// keyed on the bits of the scrambled id. Either way a change copies one
+// 32-entry node per level: 5 levels for 10M students.
+final class PersistentRoster {
+
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    static final PersistentRoster EMPTY = new PersistentRoster(new Object[WIDTH], 0, 0, 0, IdNode.EMPTY);
+
+    private final Object[] root;    // inner nodes hold Object[], the last level holds Student or null
+    private final int shift;        // BITS * (levels below the root)
+    private final int slots;        // slots in use, including emptied ones
+    private final int live;
+    private final IdNode ids;
+
+    private PersistentRoster(Object[] root, int shift, int slots, int live, IdNode ids) {
+        this.root = root;
+        this.shift = shift;
+        this.slots = slots;
+        this.live = live;
+        this.ids = ids;
+    }
+
+    int size() {
+        return live;
+    }
+
+    Student find(int id) {
+        int slot = ids.slotOf(hash(id), id, 0);
+        return slot < 0 ? null : slotAt(slot);
+    }
+
+    // Adds at the end, or replaces the student with the same id in place
+    PersistentRoster with(Student s) {
+        int id = s.getId();
+        int slot = ids.slotOf(hash(id), id, 0);
+        if (slot >= 0) {
+            return new PersistentRoster(assoc(root, shift, slot, s), shift, slots, live, ids);
+        }
+        Object[] newRoot = root;
+        int newShift = shift;
+        if (slots == 1 << (shift + BITS)) {
+            newRoot = new Object[WIDTH];
+            newRoot[0] = root;
+            newShift += BITS;
+        }
+        return new PersistentRoster(assoc(newRoot, newShift, slots, s), newShift, slots + 1, live + 1,
+                ids.put(hash(id), id, slots, 0));
+    }
+
+    PersistentRoster without(int id) {
+        int slot = ids.slotOf(hash(id), id, 0);
+        if (slot < 0) {
+            return this;
+        }
+        PersistentRoster removed = new PersistentRoster(assoc(root, shift, slot, null), shift, slots, live - 1,
+                ids.remove(hash(id), id, 0));
+        return removed.slots > 64 && removed.live < removed.slots / 2 ? removed.packed() : removed;
+    }
+
+    void forEach(Consumer<? super Student> action) {
+        forEach(root, shift, slots, action);
+    }
+
+    void forEachMarks(DoubleConsumer action) {
+        forEach(root, shift, slots, s -> action.accept(s.getMarks()));
+    }
+
+    // Same students in the same order, without empty slots. The trie is
+    // built bottom-up rather than by live appends.
+    private PersistentRoster packed() {
+        Object[] level = new Object[(live + MASK) >>> BITS];
+        int[] count = { 0 };
+        Object[][] leaf = { null };
+        IdNode[] idsHolder = { IdNode.EMPTY };
+        forEach(s -> {
+            int slot = count[0]++;
+            if ((slot & MASK) == 0) {
+                leaf[0] = new Object[WIDTH];
+                level[slot >>> BITS] = leaf[0];
+            }
+            leaf[0][slot & MASK] = s;
+            idsHolder[0] = idsHolder[0].put(hash(s.getId()), s.getId(), slot, 0);
+        });
+        int newShift = 0;
+        Object[] nodes = level;
+        while (nodes.length > 1) {
+            Object[] parents = new Object[(nodes.length + MASK) >>> BITS];
+            for (int i = 0; i < nodes.length; i++) {
+                if ((i & MASK) == 0) {
+                    parents[i >>> BITS] = new Object[WIDTH];
+                }
+                ((Object[]) parents[i >>> BITS])[i & MASK] = nodes[i];
+            }
+            nodes = parents;
+            newShift += BITS;
+        }
+        Object[] newRoot = nodes.length == 0 ? new Object[WIDTH] : (Object[]) nodes[0];
+        return new PersistentRoster(newRoot, newShift, live, live, idsHolder[0]);
+    }
+
+    private Student slotAt(int slot) {
+        Object[] node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Object[]) node[(slot >>> level) & MASK];
+        }
+        return (Student) node[slot & MASK];
+    }
+
+    // Copy of the path down to slot, with value stored there; missing nodes are created
+    private static Object[] assoc(Object[] node, int level, int slot, Student value) {
+        Object[] copy = node == null ? new Object[WIDTH] : node.clone();
+        int i = (slot >>> level) & MASK;
+        if (level == 0) {
+            copy[i] = value;
+        } else {
+            copy[i] = assoc((Object[]) copy[i], level - BITS, slot, value);
+        }
+        return copy;
+    }
+
+    // Visits slots [0, remaining) under node; returns how many it covered
+    private static int forEach(Object[] node, int level, int remaining, Consumer<? super Student> action) {
+        int covered = 0;
+        for (int i = 0; i < WIDTH && covered < remaining; i++) {
+            if (level == 0) {
+                Student s = (Student) node[i];
+                if (s != null) {
+                    action.accept(s);
+                }
+                covered++;
+            } else {
+                covered += forEach((Object[]) node[i], level - BITS, remaining - covered, action);
+            }
+        }
+        return covered;
+    }
+
+    // Multiplying by an odd constant is a bijection on int, so distinct ids
+    // always end up on distinct trie paths and leaves never collide
+    private static int hash(int id) {
+        return id * 0x9E3779B9;
+    }
+
+    private static final class IdLeaf {
+        final int id;
+        final int slot;
+
+        IdLeaf(int id, int slot) {
+            this.id = id;
+            this.slot = slot;
+        }
+    }
+
+    // Only the children present are stored, in bit order of the bitmap
+    private static final class IdNode {
+
+        static final IdNode EMPTY = new IdNode(0, new Object[0]);
+
+        final int bitmap;
+        final Object[] children;    // IdNode or IdLeaf
+
+        IdNode(int bitmap, Object[] children) {
+            this.bitmap = bitmap;
+            this.children = children;
+        }
+
+        int slotOf(int hash, int id, int shift) {
+            IdNode node = this;
+            while (true) {
+                int bit = 1 << ((hash >>> shift) & MASK);
+                if ((node.bitmap & bit) == 0) {
+                    return -1;
+                }
+                Object child = node.children[Integer.bitCount(node.bitmap & (bit - 1))];
+                if (child instanceof IdLeaf) {
+                    IdLeaf leaf = (IdLeaf) child;
+                    return leaf.id == id ? leaf.slot : -1;
+                }
+                node = (IdNode) child;
+                shift += BITS;
+            }
+        }
+
+        IdNode put(int hash, int id, int slot, int shift) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            int pos = Integer.bitCount(bitmap & (bit - 1));
+            if ((bitmap & bit) == 0) {
+                Object[] grown = new Object[children.length + 1];
+                System.arraycopy(children, 0, grown, 0, pos);
+                grown[pos] = new IdLeaf(id, slot);
+                System.arraycopy(children, pos, grown, pos + 1, children.length - pos);
+                return new IdNode(bitmap | bit, grown);
+            }
+            Object child = children[pos];
+            Object replacement;
+            if (child instanceof IdNode) {
+                replacement = ((IdNode) child).put(hash, id, slot, shift + BITS);
+            } else if (((IdLeaf) child).id == id) {
+                replacement = new IdLeaf(id, slot);
+            } else {
+                IdLeaf existing = (IdLeaf) child;
+                replacement = IdNode.EMPTY.put(hash(existing.id), existing.id, existing.slot, shift + BITS)
+                        .put(hash, id, slot, shift + BITS);
+            }
+            Object[] copy = children.clone();
+            copy[pos] = replacement;
+            return new IdNode(bitmap, copy);
+        }
+
+        // Caller has checked that id is present
+        IdNode remove(int hash, int id, int shift) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            int pos = Integer.bitCount(bitmap & (bit - 1));
+            Object child = children[pos];
+            if (child instanceof IdNode) {
+                IdNode smaller = ((IdNode) child).remove(hash, id, shift + BITS);
+                Object[] copy = children.clone();
+                // A branch left holding one leaf folds back into that leaf
+                copy[pos] = smaller.children.length == 1 && smaller.children[0] instanceof IdLeaf
+                        ? smaller.children[0] : smaller;
+                return new IdNode(bitmap, copy);
+            }
+            Object[] shrunk = new Object[children.length - 1];
+            System.arraycopy(children, 0, shrunk, 0, pos);
+            System.arraycopy(children, pos + 1, shrunk, pos, shrunk.length - pos);
+            return new IdNode(bitmap & ~bit, shrunk);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.aiiqlabs.lib.list;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+
+import com.aiiqlabs.modal.Student;
+
+// SNAPSHOT roster - the current roster is an immutable PersistentRoster
+// version behind a volatile reference. Readers (find, forEach, snapshot())
+// just read the reference: no locks, no ConcurrentModificationException, and
+// a scan sees exactly the version it started on. Writers take a lock, build
+// the next version by copying only the trie paths they touch, and publish it.
+//
+// Students are never changed in place: updateMarks stores a new Student, so
+// a snapshot's students keep their marks. Ids are unique keys, as in INDEXED.
+public class PersistentStudentStore implements StudentStore {
+
+    private volatile PersistentRoster roster = PersistentRoster.EMPTY;
+    private final Object writeLock = new Object();
+
+    @Override
+    public Student addStudent(Student s) {
+        synchronized (writeLock) {
+            PersistentRoster current = roster;
+            Student replaced = current.find(s.getId());
+            roster = current.with(s);
+            return replaced;
+        }
+    }
+
+    @Override
+    public boolean removeStudentById(int id, Consumer<? super Student> removed) {
+        Student s;
+        synchronized (writeLock) {
+            PersistentRoster current = roster;
+            s = current.find(id);
+            if (s == null) {
+                return false;
+            }
+            roster = current.without(id);
+        }
+        if (removed != null) {
+            removed.accept(s);
+        }
+        return true;
+    }
+
+    @Override
+    public Student findStudentById(int id) {
+        return roster.find(id);
+    }
+
+    @Override
+    public boolean updateMarks(int id, double newMarks) {
+        synchronized (writeLock) {
+            PersistentRoster current = roster;
+            Student s = current.find(id);
+            if (s == null) {
+                return false;
+            }
+            roster = current.with(new Student(id, s.getName(), newMarks));
+            return true;
+        }
+    }
+
+    // The whole batch becomes visible to readers at once
+    @Override
+    public int updateMarks(int[] ids, double[] marks, MarksChange changed) {
+        List<Student> before = new ArrayList<>();
+        List<Student> after = new ArrayList<>();
+        synchronized (writeLock) {
+            PersistentRoster next = roster;
+            for (int i = 0; i < ids.length; i++) {
+                Student s = next.find(ids[i]);
+                if (s != null) {
+                    Student updated = new Student(ids[i], s.getName(), marks[i]);
+                    next = next.with(updated);
+                    before.add(s);
+                    after.add(updated);
+                }
+            }
+            roster = next;
+        }
+        if (changed != null) {
+            for (int i = 0; i < after.size(); i++) {
+                changed.marksChanged(after.get(i), before.get(i).getMarks(), after.get(i).getMarks());
+            }
+        }
+        return after.size();
+    }
+
+    @Override
+    public int removeStudentsByIds(int[] ids, Consumer<? super Student> removed) {
+        List<Student> gone = new ArrayList<>();
+        synchronized (writeLock) {
+            PersistentRoster next = roster;
+            for (int id : ids) {
+                Student s = next.find(id);
+                if (s != null) {
+                    next = next.without(id);
+                    gone.add(s);
+                }
+            }
+            roster = next;
+        }
+        if (removed != null) {
+            gone.forEach(removed);
+        }
+        return gone.size();
+    }
+
+    // Readers see the roster before the batch or after all of it
+    @Override
+    public int applyChanges(int[] removeIds, int[] updateIds, double[] marks, List<Student> adds,
+            BatchChange changes) {
+        List<Student> gone = new ArrayList<>();
+        List<Student> before = new ArrayList<>();
+        List<Student> after = new ArrayList<>();
+        List<Student> replaced = new ArrayList<>(adds.size());
+        synchronized (writeLock) {
+            PersistentRoster next = roster;
+            for (int id : removeIds) {
+                Student s = next.find(id);
+                if (s != null) {
+                    next = next.without(id);
+                    gone.add(s);
+                }
+            }
+            for (int i = 0; i < updateIds.length; i++) {
+                Student s = next.find(updateIds[i]);
+                if (s != null) {
+                    Student updated = new Student(updateIds[i], s.getName(), marks[i]);
+                    next = next.with(updated);
+                    before.add(s);
+                    after.add(updated);
+                }
+            }
+            for (Student s : adds) {
+                replaced.add(next.find(s.getId()));
+                next = next.with(s);
+            }
+            roster = next;
+        }
+        if (changes != null) {
+            gone.forEach(changes::removed);
+            for (int i = 0; i < after.size(); i++) {
+                changes.marksChanged(after.get(i), before.get(i).getMarks(), after.get(i).getMarks());
+            }
+            for (int i = 0; i < adds.size(); i++) {
+                changes.added(adds.get(i), replaced.get(i));
+            }
+        }
+        return gone.size() + after.size() + adds.size();
+    }
+
+    @Override
+    public void forEach(Consumer<? super Student> action) {
+        roster.forEach(action);
+    }
+
+    @Override
+    public void forEachMarks(DoubleConsumer action) {
+        roster.forEachMarks(action);
+    }
+
+    @Override
+    public int getStudentCount() {
+        return roster.size();
+    }
+
+    // O(1): the current version is already immutable
+    @Override
+    public StudentSnapshot snapshot() {
+        return new StudentSnapshot(roster);
+    }
+}
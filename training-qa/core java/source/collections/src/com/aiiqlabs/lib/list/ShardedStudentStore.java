@@ -0,0 +1,357 @@
+package com.aiiqlabs.lib.list;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.aiiqlabs.modal.Student;
+
+// SHARDED roster - ids are hashed to N partitions, each an INDEXED roster
+// owned by one thread that alone reads and writes it. Callers hand requests
+// to the owning shard's queue and wait for the answer, so the shards never
+// share a lock or a cache line, and writers to different shards never meet.
+//
+// Batching happens at two levels: a shard thread runs everything waiting in
+// its queue back-to-back before it sleeps again, and the bulk calls
+// (updateMarks(int[]...), removeStudentsByIds) send one request per shard
+// instead of one per student, with all shards working in parallel.
+//
+// Whole-roster reads fan out: every shard copies or reduces its own part on
+// its thread and the caller merges the results. forEach visits shard by shard,
+// in insertion order within each shard, not in overall insertion order.
+//
+// Each request is a thread hand-off (about a microsecond), so this pays off
+// with many writer threads and bulk calls; a single thread doing one lookup
+// at a time is faster on INDEXED or CONCURRENT. Ids are unique keys.
+// Safe for concurrent use; close() stops the shard threads, after which
+// every call throws IllegalStateException.
+public class ShardedStudentStore implements StudentStore {
+
+    private final Shard[] shards;
+
+    // One shard per available core
+    public ShardedStudentStore() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ShardedStudentStore(int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Need at least one shard");
+        }
+        shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i);
+        }
+    }
+
+    @Override
+    public Student addStudent(Student s) {
+        Shard shard = shardOf(s.getId());
+        return shard.call(() -> shard.store.addStudent(s));
+    }
+
+    @Override
+    public boolean removeStudentById(int id, Consumer<? super Student> removed) {
+        Shard shard = shardOf(id);
+        List<Student> gone = new ArrayList<>(1);
+        boolean found = shard.call(() -> shard.store.removeStudentById(id, gone::add));
+        if (removed != null && found) {
+            gone.forEach(removed);      // listeners run on the caller's thread
+        }
+        return found;
+    }
+
+    @Override
+    public Student findStudentById(int id) {
+        Shard shard = shardOf(id);
+        return shard.call(() -> shard.store.findStudentById(id));
+    }
+
+    @Override
+    public boolean updateMarks(int id, double newMarks) {
+        Shard shard = shardOf(id);
+        return shard.call(() -> shard.store.updateMarks(id, newMarks));
+    }
+
+    // One request per shard, all shards in parallel
+    @Override
+    public int updateMarks(int[] ids, double[] marks, MarksChange changed) {
+        int[][] shardIds = split(ids);
+        double[][] shardMarks = new double[shards.length][];
+        int[] filled = new int[shards.length];
+        for (int i = 0; i < shards.length; i++) {
+            shardMarks[i] = new double[shardIds[i].length];
+        }
+        for (int i = 0; i < ids.length; i++) {
+            int shard = indexOf(ids[i]);
+            shardMarks[shard][filled[shard]++] = marks[i];
+        }
+        List<CompletableFuture<BatchUpdate>> results = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            Shard shard = shards[i];
+            int[] part = shardIds[i];
+            double[] partMarks = shardMarks[i];
+            if (part.length > 0) {
+                results.add(shard.submit(() -> {
+                    BatchUpdate batch = new BatchUpdate();
+                    batch.updated = shard.store.updateMarks(part, partMarks, changed == null ? null : batch);
+                    return batch;
+                }));
+            }
+        }
+        int updated = 0;
+        for (CompletableFuture<BatchUpdate> result : results) {
+            BatchUpdate batch = result.join();
+            for (int i = 0; i < batch.students.size(); i++) {
+                changed.marksChanged(batch.students.get(i), batch.oldMarks.get(i), batch.newMarks.get(i));
+            }
+            updated += batch.updated;
+        }
+        return updated;
+    }
+
+    @Override
+    public int removeStudentsByIds(int[] ids, Consumer<? super Student> removed) {
+        int[][] shardIds = split(ids);
+        List<CompletableFuture<List<Student>>> results = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            Shard shard = shards[i];
+            int[] part = shardIds[i];
+            if (part.length > 0) {
+                results.add(shard.submit(() -> {
+                    List<Student> gone = new ArrayList<>();
+                    shard.store.removeStudentsByIds(part, gone::add);
+                    return gone;
+                }));
+            }
+        }
+        int count = 0;
+        for (CompletableFuture<List<Student>> result : results) {
+            List<Student> gone = result.join();
+            if (removed != null) {
+                gone.forEach(removed);
+            }
+            count += gone.size();
+        }
+        return count;
+    }
+
+    @Override
+    public void forEach(Consumer<? super Student> action) {
+        for (Student[] part : fanOut(store -> {
+            Student[] copy = new Student[store.getStudentCount()];
+            int[] i = { 0 };
+            store.forEach(s -> copy[i[0]++] = s);
+            return copy;
+        })) {
+            for (Student s : part) {
+                action.accept(s);
+            }
+        }
+    }
+
+    @Override
+    public void forEachMarks(DoubleConsumer action) {
+        for (double[] part : fanOut(store -> {
+            double[] copy = new double[store.getStudentCount()];
+            int[] i = { 0 };
+            store.forEachMarks(m -> copy[i[0]++] = m);
+            return copy;
+        })) {
+            for (double m : part) {
+                action.accept(m);
+            }
+        }
+    }
+
+    // Run perShard on every shard's own thread, in parallel, and merge the
+    // results, e.g. reduce(store -> count of passes, Integer::sum). perShard
+    // must only read the store it is given.
+    public <R> R reduce(Function<StudentStore, R> perShard, BinaryOperator<R> merge) {
+        R result = null;
+        for (R part : fanOut(perShard)) {
+            result = result == null ? part : merge.apply(result, part);
+        }
+        return result;
+    }
+
+    // Kept by each shard after every request, so no hand-off is needed
+    @Override
+    public int getStudentCount() {
+        int count = 0;
+        for (Shard shard : shards) {
+            count += shard.count;
+        }
+        return count;
+    }
+
+    @Override
+    public void ensureCapacity(int expectedStudents) {
+        int perShard = expectedStudents / shards.length + 1;
+        fanOut(store -> {
+            store.ensureCapacity(perShard);
+            return Boolean.TRUE;
+        });
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    // Stop the shard threads once they have finished what is queued
+    @Override
+    public void close() {
+        for (Shard shard : shards) {
+            shard.stop();
+        }
+        for (Shard shard : shards) {
+            try {
+                shard.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private <R> List<R> fanOut(Function<StudentStore, R> perShard) {
+        List<R> parts = new ArrayList<>(shards.length);
+        for (CompletableFuture<R> part : submitAll(perShard)) {
+            parts.add(part.join());
+        }
+        return parts;
+    }
+
+    private <R> List<CompletableFuture<R>> submitAll(Function<StudentStore, R> perShard) {
+        List<CompletableFuture<R>> parts = new ArrayList<>(shards.length);
+        for (Shard shard : shards) {
+            parts.add(shard.submit(() -> perShard.apply(shard.store)));
+        }
+        return parts;
+    }
+
+    // ids grouped by shard, keeping their order
+    private int[][] split(int[] ids) {
+        int[] sizes = new int[shards.length];
+        for (int id : ids) {
+            sizes[indexOf(id)]++;
+        }
+        int[][] parts = new int[shards.length][];
+        for (int i = 0; i < shards.length; i++) {
+            parts[i] = new int[sizes[i]];
+            sizes[i] = 0;
+        }
+        for (int id : ids) {
+            int shard = indexOf(id);
+            parts[shard][sizes[shard]++] = id;
+        }
+        return parts;
+    }
+
+    private Shard shardOf(int id) {
+        return shards[indexOf(id)];
+    }
+
+    private int indexOf(int id) {
+        int h = id * 0x9E3779B9;
+        return ((h ^ (h >>> 16)) & 0x7FFFFFFF) % shards.length;
+    }
+
+    // A shard's part of a bulk update, with the changes to report on the caller's thread
+    private static final class BatchUpdate implements MarksChange {
+        final List<Student> students = new ArrayList<>();
+        final List<Double> oldMarks = new ArrayList<>();
+        final List<Double> newMarks = new ArrayList<>();
+        int updated;
+
+        @Override
+        public void marksChanged(Student s, double oldMarks, double newMarks) {
+            students.add(s);
+            this.oldMarks.add(oldMarks);
+            this.newMarks.add(newMarks);
+        }
+    }
+
+    // One partition and the thread that owns it. The thread parks when its
+    // queue is empty; a submitter unparks it only if it has said it is asleep.
+    private static final class Shard implements Runnable {
+
+        final IndexedStudentStore store = new IndexedStudentStore();
+        final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+        final Thread thread;
+        volatile int count;
+        volatile boolean sleeping;
+        volatile boolean stopping;
+
+        Shard(int number) {
+            thread = new Thread(this, "student-shard-" + number);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        <T> CompletableFuture<T> submit(Supplier<T> request) {
+            if (stopping) {
+                throw new IllegalStateException("Sharded roster is closed");
+            }
+            CompletableFuture<T> result = new CompletableFuture<>();
+            Runnable task = () -> {
+                try {
+                    result.complete(request.get());
+                } catch (Throwable t) {
+                    result.completeExceptionally(t);
+                }
+            };
+            queue.offer(task);
+            // close() came in meanwhile: take the request back unless the
+            // thread's last drain already ran it
+            if (stopping && queue.remove(task)) {
+                throw new IllegalStateException("Sharded roster is closed");
+            }
+            if (sleeping) {
+                LockSupport.unpark(thread);
+            }
+            return result;
+        }
+
+        <T> T call(Supplier<T> request) {
+            return submit(request).join();
+        }
+
+        void stop() {
+            stopping = true;
+            LockSupport.unpark(thread);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Runnable request = queue.poll();
+                if (request != null) {
+                    request.run();
+                    count = store.getStudentCount();
+                    continue;
+                }
+                if (stopping) {
+                    // Requests queued before they could see stopping
+                    while ((request = queue.poll()) != null) {
+                        request.run();
+                    }
+                    return;
+                }
+                sleeping = true;
+                if (queue.isEmpty() && !stopping) {
+                    LockSupport.park(this);
+                }
+                sleeping = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.aiiqlabs.lib.list;
+
+import com.aiiqlabs.modal.Student;
+
+// Shown every change made through a StudentManager before it is applied, on
+// the thread making it and under that id's lock, so each id's changes arrive
+// in the order they are applied. Throwing rejects the change: the roster is
+// left as it was and the exception reaches the caller. For write-ahead logs.
+public interface StudentChangeInterceptor {
+
+    void beforeAdd(Student s);
+
+    // Also called for ids the roster does not hold; the update then does nothing
+    void beforeMarksUpdate(int id, double newMarks);
+
+    void beforeRemove(int id);
+
+    // A bulk call shows all of its changes between these two, under every id's
+    // lock, and applies none of them unless batchEnd() returns normally
+    default void batchStart() {
+    }
+
+    default void batchEnd() {
+    }
+}
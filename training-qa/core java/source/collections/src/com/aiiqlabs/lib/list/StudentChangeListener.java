@@ -0,0 +1,19 @@
+package com.aiiqlabs.lib.list;
+
+import com.aiiqlabs.modal.Student;
+
+// Told about every change made through a StudentManager, on the thread that made it
+public interface StudentChangeListener {
+
+    void studentAdded(Student s);
+
+    // Re-adding an id that the store keys on; by default a removal then an add
+    default void studentReplaced(Student old, Student s) {
+        studentRemoved(old);
+        studentAdded(s);
+    }
+
+    void marksUpdated(Student s, double oldMarks, double newMarks);
+
+    void studentRemoved(Student s);
+}
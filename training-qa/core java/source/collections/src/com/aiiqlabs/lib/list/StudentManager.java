@@ -1,73 +1,439 @@
 package com.aiiqlabs.lib.list;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
 
+import com.aiiqlabs.lib.metrics.OperationTimer;
+import com.aiiqlabs.lib.metrics.StudentMetrics;
 import com.aiiqlabs.modal.Student;
 
-public class StudentManager {
-	
-    private List<Student> students;
+public class StudentManager implements AutoCloseable {
+
+    private StudentStore students;
+    private List<StudentChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private final List<StudentChangeInterceptor> interceptors = new CopyOnWriteArrayList<>();
+    private final OperationTimer timer = new OperationTimer();
+
+    // While there are listeners or interceptors, a change, its interception
+    // and its notifications run under the lock of the id's stripe (bulk calls
+    // take every stripe), so both see each id's changes in the order they
+    // were applied
+    private static final int STRIPES = 64;
+    private static final int[] NO_IDS = {};
+    private static final double[] NO_MARKS = {};
+    private final ReentrantLock[] stripes = newStripes();
 
     public StudentManager(String type) {
         switch (type.toUpperCase()) {
             case "ARRAY":
-                students = new ArrayList<>();
+                students = new ListStudentStore(new ArrayList<>());
                 break;
             case "LINKED":
-                students = new LinkedList<>();
+                students = new ListStudentStore(new LinkedList<>());
                 break;
             case "VECTOR":
-                students = new Vector<>();
+                students = new ListStudentStore(new Vector<>());
+                break;
+            case "INDEXED":
+                students = new IndexedStudentStore();
+                break;
+            case "COLUMNAR":
+                students = new ColumnarStudentStore();
+                break;
+            case "CONCURRENT":
+                students = new ConcurrentStudentStore();
+                break;
+            case "SNAPSHOT":
+                students = new PersistentStudentStore();
+                break;
+            case "SHARDED":
+                students = new ShardedStudentStore();
+                break;
+            case "AUTO":
+                students = new AdaptiveStudentStore();
                 break;
             default:
                 throw new IllegalArgumentException("Invalid list type");
         }
     }
 
-    
+    // Backends that need more than a type name, e.g. MappedStudentStore.open(file)
+    public StudentManager(StudentStore store) {
+        students = store;
+    }
+
+
  // Add student
     public void addStudent(Student s) {
-        students.add(s);
+        long start = timer.start();
+        if (unobserved()) {
+            students.addStudent(s);
+        } else {
+            ReentrantLock stripe = stripeOf(s.getId());
+            stripe.lock();
+            try {
+                for (StudentChangeInterceptor interceptor : interceptors) {
+                    interceptor.beforeAdd(s);
+                }
+                fireAdded(s, students.addStudent(s));
+            } finally {
+                stripe.unlock();
+            }
+        }
+        timer.stop(StudentMetrics.Operation.ADD, start);
     }
 
     // Remove student by ID
     public boolean removeStudentById(int id) {
-        return students.removeIf(s -> s.getId() == id);
+        long start = timer.start();
+        boolean removed;
+        if (unobserved()) {
+            removed = students.removeStudentById(id, null);
+        } else {
+            ReentrantLock stripe = stripeOf(id);
+            stripe.lock();
+            try {
+                for (StudentChangeInterceptor interceptor : interceptors) {
+                    interceptor.beforeRemove(id);
+                }
+                removed = students.removeStudentById(id, this::fireRemoved);
+            } finally {
+                stripe.unlock();
+            }
+        }
+        timer.stop(StudentMetrics.Operation.REMOVE, start);
+        return removed;
     }
 
     // Find student by ID
     public Student findStudentById(int id) {
-        for (Student s : students) {
-            if (s.getId() == id) {
-                return s;
-            }
-        }
-        return null;
+        long start = timer.start();
+        Student s = students.findStudentById(id);
+        timer.stop(StudentMetrics.Operation.FIND, start);
+        return s;
     }
 
     // Update marks
     public boolean updateMarks(int id, double newMarks) {
-        Student s = findStudentById(id);
-        if (s != null) {
-            s.setMarks(newMarks);
+        long start = timer.start();
+        boolean updated = updateMarksAndNotify(id, newMarks);
+        timer.stop(StudentMetrics.Operation.UPDATE, start);
+        return updated;
+    }
+
+    private boolean updateMarksAndNotify(int id, double newMarks) {
+        if (unobserved()) {
+            return students.updateMarks(id, newMarks);
+        }
+        ReentrantLock stripe = stripeOf(id);
+        stripe.lock();
+        try {
+            Student s = students.findStudentById(id);
+            if (s == null) {
+                return false;
+            }
+            for (StudentChangeInterceptor interceptor : interceptors) {
+                interceptor.beforeMarksUpdate(id, newMarks);
+            }
+            double oldMarks = s.getMarks();
+            if (!students.updateMarks(id, newMarks)) {
+                return false;       // removed behind the manager's back
+            }
+            if (Double.compare(s.getMarks(), newMarks) != 0) {
+                // SNAPSHOT stores a new Student instead of changing this one
+                Student current = students.findStudentById(id);
+                if (current != null) {
+                    s = current;
+                }
+            }
+            for (StudentChangeListener listener : listeners) {
+                listener.marksUpdated(s, oldMarks, newMarks);
+            }
             return true;
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    // Apply many marks at once: ids[i] gets marks[i]. One pass over the roster
+    // even for ARRAY, LINKED and VECTOR. Returns how many updates were applied.
+    public int updateMarks(int[] ids, double[] marks) {
+        if (ids.length != marks.length) {
+            throw new IllegalArgumentException("ids and marks must have the same length");
         }
-        return false;
+        long start = timer.start();
+        int updated;
+        if (unobserved()) {
+            updated = students.updateMarks(ids, marks, null);
+        } else {
+            lockAllStripes();
+            try {
+                interceptBatch(NO_IDS, ids, marks, Collections.emptyList());
+                updated = students.updateMarks(ids, marks, this::fireMarksUpdated);
+            } finally {
+                unlockAllStripes();
+            }
+        }
+        timer.stop(StudentMetrics.Operation.UPDATE, start, updated);
+        return updated;
+    }
+
+    // id -> new marks
+    public int updateMarks(Map<Integer, Double> marks) {
+        int[] ids = new int[marks.size()];
+        double[] values = new double[marks.size()];
+        int i = 0;
+        for (Map.Entry<Integer, Double> e : marks.entrySet()) {
+            ids[i] = e.getKey();
+            values[i++] = e.getValue();
+        }
+        return updateMarks(ids, values);
+    }
+
+    // Remove every listed id in one pass over the roster; returns how many students were removed
+    public int removeStudentsByIds(int[] ids) {
+        long start = timer.start();
+        int removed;
+        if (unobserved()) {
+            removed = students.removeStudentsByIds(ids, null);
+        } else {
+            lockAllStripes();
+            try {
+                interceptBatch(ids, NO_IDS, NO_MARKS, Collections.emptyList());
+                removed = students.removeStudentsByIds(ids, this::fireRemoved);
+            } finally {
+                unlockAllStripes();
+            }
+        }
+        timer.stop(StudentMetrics.Operation.REMOVE, start, removed);
+        return removed;
+    }
+
+    // Remove, update marks, then add, as one batch - e.g. a RosterDelta.
+    // SNAPSHOT publishes the whole batch at once; other types apply it in
+    // passes, so a reader on another thread can see it part done. Listeners
+    // hear the batch while it holds every id's lock. Returns how many changes
+    // were applied.
+    public int applyChanges(int[] removeIds, int[] updateIds, double[] marks, List<Student> adds) {
+        if (updateIds.length != marks.length) {
+            throw new IllegalArgumentException("ids and marks must have the same length");
+        }
+        long start = timer.start();
+        int applied;
+        if (unobserved()) {
+            applied = students.applyChanges(removeIds, updateIds, marks, adds, null);
+        } else {
+            lockAllStripes();
+            try {
+                interceptBatch(removeIds, updateIds, marks, adds);
+                applied = students.applyChanges(removeIds, updateIds, marks, adds, new StudentStore.BatchChange() {
+                    @Override
+                    public void marksChanged(Student s, double oldMarks, double newMarks) {
+                        fireMarksUpdated(s, oldMarks, newMarks);
+                    }
+
+                    @Override
+                    public void removed(Student s) {
+                        fireRemoved(s);
+                    }
+
+                    @Override
+                    public void added(Student s, Student replaced) {
+                        fireAdded(s, replaced);
+                    }
+                });
+            } finally {
+                unlockAllStripes();
+            }
+        }
+        timer.stop(StudentMetrics.Operation.UPDATE, start, applied);
+        return applied;
+    }
+
+    // Visit every student in roster order
+    public void forEachStudent(Consumer<? super Student> action) {
+        students.forEach(action);
     }
 
     // Get all students (read-only style)
     public void printAllStudents() {
-        for (Student s : students) {
-            System.out.println(s);
-        }
+        students.forEach(s -> System.out.println(s));
+    }
+
+    // Marks of every student in roster order, as a primitive array
+    public double[] getAllMarks() {
+        MarksCollector collector = new MarksCollector(getStudentCount());
+        students.forEachMarks(collector);
+        return collector.toArray();
+    }
+
+    // Consistent read-only view to scan while other threads keep changing the
+    // roster. O(1) for SNAPSHOT; other types copy the roster, so for them
+    // take it while nothing else is writing.
+    public StudentSnapshot snapshot() {
+        return students.snapshot();
     }
 
     // Get total students
     public int getStudentCount() {
-        return students.size();
+        return students.getStudentCount();
+    }
+
+    // False for ARRAY, LINKED, VECTOR and AUTO, where ids may repeat
+    public boolean isKeyedById() {
+        return students.isKeyedById();
     }
-    
+
+    // Pre-size the backend before adding many students at once
+    public void ensureCapacity(int expectedStudents) {
+        students.ensureCapacity(expectedStudents);
+    }
+
+    // Listeners see every later add, update and remove made through this manager
+    public void addChangeListener(StudentChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    // Add a listener and first show it every current student as studentAdded,
+    // under every stripe, so it neither misses a change nor sees one twice.
+    // Writes that began while the roster had no listener or interceptor take
+    // no stripe and are not waited for: attach before other threads write, or
+    // while something else already observes the roster.
+    public void addChangeListenerAndReplay(StudentChangeListener listener) {
+        lockAllStripes();
+        try {
+            listeners.add(listener);
+            students.forEach(listener::studentAdded);
+        } finally {
+            unlockAllStripes();
+        }
+    }
+
+    public void removeChangeListener(StudentChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    // Interceptors see every later add, update and remove before it is applied,
+    // and can reject it by throwing
+    public void addChangeInterceptor(StudentChangeInterceptor interceptor) {
+        interceptors.add(interceptor);
+    }
+
+    public void removeChangeInterceptor(StudentChangeInterceptor interceptor) {
+        interceptors.remove(interceptor);
+    }
+
+    // Time every add, remove, find and update from now on; null stops measuring
+    public void setMetrics(StudentMetrics metrics) {
+        timer.setMetrics(metrics);
+    }
+
+    public StudentMetrics getMetrics() {
+        return timer.getMetrics();
+    }
+
+    @Override
+    public void close() {
+        students.close();
+    }
+
+    // Grows if a concurrent roster gains students while being read
+    private static class MarksCollector implements DoubleConsumer {
+        private double[] marks;
+        private int count;
+
+        MarksCollector(int expected) {
+            marks = new double[Math.max(expected, 16)];
+        }
+
+        @Override
+        public void accept(double value) {
+            if (count == marks.length) {
+                marks = Arrays.copyOf(marks, count + (count >> 1));
+            }
+            marks[count++] = value;
+        }
+
+        double[] toArray() {
+            return count == marks.length ? marks : Arrays.copyOf(marks, count);
+        }
+    }
+
+    private boolean unobserved() {
+        return listeners.isEmpty() && interceptors.isEmpty();
+    }
+
+    // Called with every stripe held; a throw leaves the whole batch unapplied
+    private void interceptBatch(int[] removeIds, int[] updateIds, double[] marks, List<Student> adds) {
+        for (StudentChangeInterceptor interceptor : interceptors) {
+            interceptor.batchStart();
+            for (int id : removeIds) {
+                interceptor.beforeRemove(id);
+            }
+            for (int i = 0; i < updateIds.length; i++) {
+                interceptor.beforeMarksUpdate(updateIds[i], marks[i]);
+            }
+            for (Student s : adds) {
+                interceptor.beforeAdd(s);
+            }
+            interceptor.batchEnd();
+        }
+    }
+
+    private static ReentrantLock[] newStripes() {
+        ReentrantLock[] locks = new ReentrantLock[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        return locks;
+    }
+
+    private ReentrantLock stripeOf(int id) {
+        return stripes[(id ^ (id >>> 16)) & (STRIPES - 1)];
+    }
+
+    // Always in the same order, so two bulk calls cannot deadlock
+    private void lockAllStripes() {
+        for (ReentrantLock stripe : stripes) {
+            stripe.lock();
+        }
+    }
+
+    private void unlockAllStripes() {
+        for (int i = STRIPES - 1; i >= 0; i--) {
+            stripes[i].unlock();
+        }
+    }
+
+    private void fireAdded(Student s, Student replaced) {
+        for (StudentChangeListener listener : listeners) {
+            if (replaced != null) {
+                listener.studentReplaced(replaced, s);
+            } else {
+                listener.studentAdded(s);
+            }
+        }
+    }
+
+    private void fireMarksUpdated(Student s, double oldMarks, double newMarks) {
+        for (StudentChangeListener listener : listeners) {
+            listener.marksUpdated(s, oldMarks, newMarks);
+        }
+    }
+
+    private void fireRemoved(Student s) {
+        for (StudentChangeListener listener : listeners) {
+            listener.studentRemoved(s);
+        }
+    }
+
 }
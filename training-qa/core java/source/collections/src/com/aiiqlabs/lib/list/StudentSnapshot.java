@@ -0,0 +1,72 @@
+package com.aiiqlabs.lib.list;
+
+import java.util.function.Consumer;
+
+import com.aiiqlabs.modal.Student;
+
+// Read-only roster as it was at one moment. Later changes to the manager are
+// never seen, and scanning a snapshot never blocks or breaks writers.
+// Treat the students in it as read-only too.
+//
+// A snapshot of a list roster (ARRAY, LINKED, VECTOR, AUTO) keeps every
+// student, repeated ids included, and finds by scanning like ARRAY does.
+public class StudentSnapshot {
+
+    private final PersistentRoster roster;      // null for a list roster
+    private final Student[] list;
+
+    StudentSnapshot(PersistentRoster roster) {
+        this.roster = roster;
+        this.list = null;
+    }
+
+    StudentSnapshot(Student[] list) {
+        this.roster = null;
+        this.list = list;
+    }
+
+    // The first student with the id in roster order
+    public Student findStudentById(int id) {
+        if (roster != null) {
+            return roster.find(id);
+        }
+        for (Student s : list) {
+            if (s.getId() == id) {
+                return s;
+            }
+        }
+        return null;
+    }
+
+    // Visit every student in roster order
+    public void forEachStudent(Consumer<? super Student> action) {
+        if (roster != null) {
+            roster.forEach(action);
+            return;
+        }
+        for (Student s : list) {
+            action.accept(s);
+        }
+    }
+
+    public void printAllStudents() {
+        forEachStudent(s -> System.out.println(s));
+    }
+
+    public double[] getAllMarks() {
+        double[] marks = new double[getStudentCount()];
+        if (roster == null) {
+            for (int i = 0; i < list.length; i++) {
+                marks[i] = list[i].getMarks();
+            }
+            return marks;
+        }
+        int[] next = { 0 };
+        roster.forEachMarks(m -> marks[next[0]++] = m);
+        return marks;
+    }
+
+    public int getStudentCount() {
+        return roster != null ? roster.size() : list.length;
+    }
+}
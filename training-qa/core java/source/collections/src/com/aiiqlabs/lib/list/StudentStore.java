@@ -0,0 +1,135 @@
+package com.aiiqlabs.lib.list;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+
+import com.aiiqlabs.modal.Student;
+
+// Storage behind StudentManager - one implementation per roster type
+public interface StudentStore extends AutoCloseable {
+
+    // Told about each student a batch update changed; s carries the new marks
+    interface MarksChange {
+        void marksChanged(Student s, double oldMarks, double newMarks);
+    }
+
+    // Told about each change applyChanges made, on top of the marks changes
+    interface BatchChange extends MarksChange {
+        void removed(Student s);
+
+        // replaced is null unless the store keys by id and already held that id
+        void added(Student s, Student replaced);
+    }
+
+    // Add student; returns the student it replaced, if the store keys by id
+    Student addStudent(Student s);
+
+    // Remove student by ID, handing each removed student to the callback (may be null)
+    boolean removeStudentById(int id, Consumer<? super Student> removed);
+
+    // Find student by ID
+    Student findStudentById(int id);
+
+    // Update marks
+    boolean updateMarks(int id, double newMarks);
+
+    // Update many students at once: ids[i] gets marks[i], and a later
+    // duplicate id wins. Returns how many updates were applied.
+    // Keyed stores loop over the ids; list stores override this with one pass.
+    default int updateMarks(int[] ids, double[] marks, MarksChange changed) {
+        int updated = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (changed == null) {
+                if (updateMarks(ids[i], marks[i])) {
+                    updated++;
+                }
+                continue;
+            }
+            Student s = findStudentById(ids[i]);
+            if (s == null) {
+                continue;
+            }
+            double oldMarks = s.getMarks();
+            updateMarks(ids[i], marks[i]);
+            if (Double.compare(s.getMarks(), marks[i]) != 0) {
+                s = findStudentById(ids[i]);    // the store replaced the Student
+            }
+            changed.marksChanged(s, oldMarks, marks[i]);
+            updated++;
+        }
+        return updated;
+    }
+
+    // Remove every student whose id is listed; returns how many were removed
+    default int removeStudentsByIds(int[] ids, Consumer<? super Student> removed) {
+        int count = 0;
+        for (int id : ids) {
+            if (removeStudentById(id, removed)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Removes, then marks updates, then adds, as one batch. Returns how many
+    // changes were applied. This default makes the three passes in turn, so a
+    // reader on another thread can see the batch part done; SNAPSHOT
+    // overrides it to publish the whole batch at once.
+    default int applyChanges(int[] removeIds, int[] updateIds, double[] marks, List<Student> adds,
+            BatchChange changes) {
+        int applied = removeStudentsByIds(removeIds, changes == null ? null : changes::removed);
+        applied += updateMarks(updateIds, marks, changes);
+        if (!adds.isEmpty()) {
+            ensureCapacity(getStudentCount() + adds.size());
+            for (Student s : adds) {
+                Student replaced = addStudent(s);
+                if (changes != null) {
+                    changes.added(s, replaced);
+                }
+            }
+        }
+        return applied + adds.size();
+    }
+
+    // Visit every student in insertion order
+    void forEach(Consumer<? super Student> action);
+
+    // Visit every student's marks in insertion order, without building Students
+    default void forEachMarks(DoubleConsumer action) {
+        forEach(s -> action.accept(s.getMarks()));
+    }
+
+    // Get total students
+    int getStudentCount();
+
+    // Consistent read-only copy of the roster. This default copies every
+    // student, so the store must not change meanwhile; SNAPSHOT does it in O(1).
+    // List rosters are copied into a list, keeping students whose ids repeat.
+    default StudentSnapshot snapshot() {
+        if (!isKeyedById()) {
+            List<Student> copy = new ArrayList<>(getStudentCount());
+            forEach(s -> copy.add(new Student(s.getId(), s.getName(), s.getMarks())));
+            return new StudentSnapshot(copy.toArray(new Student[0]));
+        }
+        PersistentRoster[] copy = { PersistentRoster.EMPTY };
+        forEach(s -> copy[0] = copy[0].with(new Student(s.getId(), s.getName(), s.getMarks())));
+        return new StudentSnapshot(copy[0]);
+    }
+
+    // True when ids are unique keys and re-adding an id replaces that student;
+    // list rosters, where ids may repeat, return false
+    default boolean isKeyedById() {
+        return true;
+    }
+
+    // Pre-size for a known number of students before a bulk load
+    default void ensureCapacity(int expectedStudents) {
+    }
+
+    // Release files or threads held by the store
+    @Override
+    default void close() {
+    }
+}
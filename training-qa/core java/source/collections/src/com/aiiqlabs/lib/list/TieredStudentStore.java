@@ -0,0 +1,215 @@
+package com.aiiqlabs.lib.list;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+
+import com.aiiqlabs.modal.Student;
+
+// Roster larger than the heap: every student lives in a MappedStudentStore
+// file (the cold tier, off-heap and paged in by the OS), and the students
+// most recently found or updated are also kept on-heap (the hot tier) up to
+// a byte budget. A miss faults the record in from the file and evicts the
+// least recently used hot students until the hot tier fits the budget again.
+//
+// Writes go through to the file, so evicting is just forgetting the copy.
+// Adds go straight to the file, and forEach reads the file without touching
+// the hot tier, so bulk loads and report scans do not flush the working set.
+// A student changed through forEach drops its hot copy, so the next find
+// reads the new marks from the file.
+//
+//   StudentManager manager = new StudentManager(TieredStudentStore.open(file, 64 << 20));
+//
+// Ids are unique keys and names are limited as in MappedStudentStore. Like
+// INDEXED, not safe for concurrent use.
+public class TieredStudentStore implements StudentStore {
+
+    // Approximate heap of one hot student beyond its name: the Student, the
+    // name String and array headers, a LinkedHashMap entry and the boxed id
+    private static final int ENTRY_BYTES = 128;
+
+    private final MappedStudentStore cold;
+    private final long heapBudgetBytes;
+    private final LinkedHashMap<Integer, HotStudent> hot = new LinkedHashMap<>(16, 0.75f, true);
+    private long hotBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public TieredStudentStore(MappedStudentStore cold, long heapBudgetBytes) {
+        if (heapBudgetBytes < ENTRY_BYTES) {
+            throw new IllegalArgumentException("Heap budget too small: " + heapBudgetBytes);
+        }
+        this.cold = cold;
+        this.heapBudgetBytes = heapBudgetBytes;
+    }
+
+    // Open an existing roster file, or create an empty one
+    public static TieredStudentStore open(Path file, long heapBudgetBytes) throws IOException {
+        return new TieredStudentStore(MappedStudentStore.open(file), heapBudgetBytes);
+    }
+
+    @Override
+    public Student addStudent(Student s) {
+        forget(s.getId());
+        return cold.addStudent(s);
+    }
+
+    @Override
+    public boolean removeStudentById(int id, Consumer<? super Student> removed) {
+        forget(id);
+        return cold.removeStudentById(id, removed);
+    }
+
+    @Override
+    public Student findStudentById(int id) {
+        return lookup(id);
+    }
+
+    @Override
+    public boolean updateMarks(int id, double newMarks) {
+        HotStudent s = lookup(id);
+        if (s == null) {
+            return false;
+        }
+        s.setMarks(newMarks);
+        return true;
+    }
+
+    @Override
+    public void forEach(Consumer<? super Student> action) {
+        cold.forEach(s -> action.accept(new ScannedStudent(this, s)));
+    }
+
+    @Override
+    public void forEachMarks(DoubleConsumer action) {
+        cold.forEachMarks(action);
+    }
+
+    @Override
+    public int getStudentCount() {
+        return cold.getStudentCount();
+    }
+
+    @Override
+    public void ensureCapacity(int expectedStudents) {
+        cold.ensureCapacity(expectedStudents);
+    }
+
+    // Push dirty pages of the file to disk
+    public void flush() {
+        cold.flush();
+    }
+
+    @Override
+    public void close() {
+        hot.clear();
+        hotBytes = 0;
+        cold.close();
+    }
+
+    public long getHits() { return hits; }
+    public long getMisses() { return misses; }
+    public long getEvictions() { return evictions; }
+    public int getHotStudents() { return hot.size(); }
+    public long getHotBytes() { return hotBytes; }
+    public long getHeapBudgetBytes() { return heapBudgetBytes; }
+
+    public double getHitRatio() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    public String statsSummary() {
+        return String.format("hits=%d misses=%d hit ratio=%.1f%% evictions=%d hot=%d students / %d of %d bytes",
+                hits, misses, 100 * getHitRatio(), evictions, hot.size(), hotBytes, heapBudgetBytes);
+    }
+
+    private HotStudent lookup(int id) {
+        HotStudent s = hot.get(id);
+        if (s != null) {
+            hits++;
+            return s;
+        }
+        misses++;
+        Student stored = cold.findStudentById(id);
+        if (stored == null) {
+            return null;
+        }
+        s = new HotStudent(this, id, stored.getName(), stored.getMarks());
+        hot.put(id, s);
+        hotBytes += cost(s);
+        evict();
+        return s;
+    }
+
+    private void evict() {
+        Iterator<HotStudent> eldest = hot.values().iterator();
+        while (hotBytes > heapBudgetBytes && eldest.hasNext()) {
+            hotBytes -= cost(eldest.next());
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    private void forget(int id) {
+        HotStudent s = hot.remove(id);
+        if (s != null) {
+            hotBytes -= cost(s);
+        }
+    }
+
+    private static long cost(Student s) {
+        return ENTRY_BYTES + s.getName().length();
+    }
+
+    // A record met by forEach; setMarks writes the file and forgets the hot
+    // copy, which would otherwise keep the old marks
+    private static class ScannedStudent extends Student {
+
+        private final TieredStudentStore store;
+        private final Student record;
+
+        ScannedStudent(TieredStudentStore store, Student record) {
+            super(record.getId(), record.getName(), record.getMarks());
+            this.store = store;
+            this.record = record;
+        }
+
+        @Override
+        public double getMarks() {
+            return record.getMarks();
+        }
+
+        @Override
+        public void setMarks(double marks) {
+            record.setMarks(marks);
+            store.forget(getId());
+        }
+
+        @Override
+        public String toString() {
+            return getId() + " - " + getName() + " : " + getMarks();
+        }
+    }
+
+    // Hot copy of a record; setMarks also writes the file
+    private static class HotStudent extends Student {
+
+        private final TieredStudentStore store;
+
+        HotStudent(TieredStudentStore store, int id, String name, double marks) {
+            super(id, name, marks);
+            this.store = store;
+        }
+
+        @Override
+        public void setMarks(double marks) {
+            super.setMarks(marks);
+            store.cold.updateMarks(getId(), marks);
+        }
+    }
+}
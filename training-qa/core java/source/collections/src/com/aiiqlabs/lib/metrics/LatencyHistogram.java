@@ -0,0 +1,108 @@
+package com.aiiqlabs.lib.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Latency counts in log-linear buckets, as HdrHistogram does: every power of
+// two is split into 32 equal buckets, so a bucket is within ~3% of any value
+// in it, from 1 ns up to ~36 minutes (longer values count in the last bucket).
+//
+// Recording is one atomic add on a pre-allocated array and allocates nothing.
+// Threads are spread over stripes - separate rows of the array, each starting
+// on its own cache lines - so concurrent recorders rarely touch the same
+// counter. Reads add the stripes up.
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB_BUCKETS;
+    private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+    private static final int SUM = BUCKETS;                     // total nanos, per stripe
+    private static final int ROW = (BUCKETS + 1 + 15) & ~15;    // 128-byte aligned rows
+
+    private final AtomicLongArray counts;
+    private final int stripeMask;
+
+    public LatencyHistogram() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int stripes = Math.min(Integer.highestOneBit(Math.max(cores - 1, 1)) << 1, 8);
+        stripeMask = stripes - 1;
+        counts = new AtomicLongArray(stripes * ROW);
+    }
+
+    public void record(long nanos) {
+        record(nanos, 1);
+    }
+
+    // times values of nanos each, e.g. the per-item latency of a batch
+    public void record(long nanos, int times) {
+        long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+        int row = ((int) Thread.currentThread().getId() & stripeMask) * ROW;
+        counts.getAndAdd(row + bucket(value), times);
+        counts.getAndAdd(row + SUM, value * times);
+    }
+
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+    }
+
+    // Consistent enough for monitoring; records made while reading may be half counted
+    public OperationSnapshot snapshot(String operation, double seconds) {
+        long[] merged = new long[BUCKETS];
+        long total = 0;
+        long sum = 0;
+        for (int row = 0; row < counts.length(); row += ROW) {
+            for (int b = 0; b < BUCKETS; b++) {
+                long c = counts.get(row + b);
+                merged[b] += c;
+                total += c;
+            }
+            sum += counts.get(row + SUM);
+        }
+        if (total == 0) {
+            return new OperationSnapshot(operation, 0, 0, 0, 0, 0, 0, 0);
+        }
+        long max = 0;
+        for (int b = BUCKETS - 1; b >= 0; b--) {
+            if (merged[b] != 0) {
+                max = value(b);
+                break;
+            }
+        }
+        return new OperationSnapshot(operation, total, seconds > 0 ? total / seconds : 0, (double) sum / total,
+                percentile(merged, total, 0.50), percentile(merged, total, 0.99), percentile(merged, total, 0.999), max);
+    }
+
+    private static long percentile(long[] merged, long total, double p) {
+        long rank = Math.max(1, (long) Math.ceil(p * total));
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += merged[b];
+            if (seen >= rank) {
+                return value(b);
+            }
+        }
+        return value(BUCKETS - 1);
+    }
+
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return ((exponent - SUB_BITS + 1) << SUB_BITS) + sub;
+    }
+
+    // Middle of the bucket's range
+    static long value(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = (bucket >> SUB_BITS) + SUB_BITS - 1;
+        long width = 1L << (exponent - SUB_BITS);
+        return ((SUB_BUCKETS + (bucket & (SUB_BUCKETS - 1))) * width) + (width >> 1);
+    }
+}
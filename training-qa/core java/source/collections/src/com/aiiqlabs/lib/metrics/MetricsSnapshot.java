@@ -0,0 +1,47 @@
+package com.aiiqlabs.lib.metrics;
+
+import java.util.List;
+
+// Point-in-time copy of a StudentMetrics; only operations that ran are listed
+public class MetricsSnapshot {
+
+    private final String name;
+    private final double seconds;
+    private final int queueDepth;
+    private final List<OperationSnapshot> operations;
+
+    public MetricsSnapshot(String name, double seconds, int queueDepth, List<OperationSnapshot> operations) {
+        this.name = name;
+        this.seconds = seconds;
+        this.queueDepth = queueDepth;
+        this.operations = operations;
+    }
+
+    public String getName() { return name; }
+    // Time covered, since the metrics were created or reset
+    public double getSeconds() { return seconds; }
+    // -1 when not attached to a queue
+    public int getQueueDepth() { return queueDepth; }
+    public List<OperationSnapshot> getOperations() { return operations; }
+
+    public OperationSnapshot getOperation(String operation) {
+        for (OperationSnapshot snapshot : operations) {
+            if (snapshot.getOperation().equals(operation)) {
+                return snapshot;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(name).append(String.format(" over %.1fs", seconds));
+        if (queueDepth >= 0) {
+            sb.append(", queue depth ").append(queueDepth);
+        }
+        for (OperationSnapshot operation : operations) {
+            sb.append(System.lineSeparator()).append("  ").append(operation);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,42 @@
+package com.aiiqlabs.lib.metrics;
+
+// Counters and latency percentiles of one operation; latencies in nanoseconds
+public class OperationSnapshot {
+
+    private final String operation;
+    private final long count;
+    private final double throughput;
+    private final double mean;
+    private final long p50;
+    private final long p99;
+    private final long p999;
+    private final long max;
+
+    public OperationSnapshot(String operation, long count, double throughput, double mean,
+            long p50, long p99, long p999, long max) {
+        this.operation = operation;
+        this.count = count;
+        this.throughput = throughput;
+        this.mean = mean;
+        this.p50 = p50;
+        this.p99 = p99;
+        this.p999 = p999;
+        this.max = max;
+    }
+
+    public String getOperation() { return operation; }
+    public long getCount() { return count; }
+    // Operations per second since the metrics were created or reset
+    public double getThroughput() { return throughput; }
+    public double getMean() { return mean; }
+    public long getP50() { return p50; }
+    public long getP99() { return p99; }
+    public long getP999() { return p999; }
+    public long getMax() { return max; }
+
+    @Override
+    public String toString() {
+        return String.format("%-7s count=%d throughput=%.0f/s mean=%.0fns p50=%dns p99=%dns p999=%dns max=%dns",
+                operation, count, throughput, mean, p50, p99, p999, max);
+    }
+}
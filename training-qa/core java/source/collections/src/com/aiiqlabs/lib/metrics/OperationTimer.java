@@ -0,0 +1,44 @@
+package com.aiiqlabs.lib.metrics;
+
+// The StudentMetrics a manager reports to, if any. Managers bracket each
+// operation with start() and stop(...); with no metrics attached, or with
+// them switched off, start() skips the clock and stop() records nothing.
+//
+//   long start = timer.start();
+//   queue.offer(s);
+//   timer.stop(StudentMetrics.Operation.OFFER, start);
+public final class OperationTimer {
+
+    private static final long NOT_TIMED = Long.MIN_VALUE;
+
+    private volatile StudentMetrics metrics;
+
+    // null stops measuring
+    public void setMetrics(StudentMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public StudentMetrics getMetrics() {
+        return metrics;
+    }
+
+    public long start() {
+        StudentMetrics m = metrics;
+        return m != null && m.isEnabled() ? System.nanoTime() : NOT_TIMED;
+    }
+
+    public void stop(StudentMetrics.Operation operation, long start) {
+        StudentMetrics m = metrics;
+        if (start != NOT_TIMED && m != null) {
+            m.record(operation, start);
+        }
+    }
+
+    // One call that handled items students
+    public void stop(StudentMetrics.Operation operation, long start, int items) {
+        StudentMetrics m = metrics;
+        if (start != NOT_TIMED && m != null) {
+            m.record(operation, start, items);
+        }
+    }
+}
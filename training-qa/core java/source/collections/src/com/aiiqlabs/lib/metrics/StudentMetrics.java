@@ -0,0 +1,125 @@
+package com.aiiqlabs.lib.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntSupplier;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Per-operation counts and latency histograms for a StudentManager or a queue
+// manager. Attach with setMetrics(...); managers without metrics, or with
+// metrics switched off, skip the clock reads entirely.
+//
+//   StudentMetrics metrics = new StudentMetrics("roster").register();
+//   manager.setMetrics(metrics);
+//   System.out.println(metrics.snapshot());
+public class StudentMetrics implements StudentMetricsMXBean {
+
+    public enum Operation { ADD, REMOVE, FIND, UPDATE, OFFER, SERVE, PEEK }
+
+    private final String name;
+    private final LatencyHistogram[] histograms = new LatencyHistogram[Operation.values().length];
+    private volatile boolean enabled = true;
+    private volatile long startedNanos = System.nanoTime();
+    private volatile IntSupplier queueDepth;
+    private ObjectName objectName;
+
+    public StudentMetrics(String name) {
+        this.name = name;
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    // Managers call this when startNanos came from System.nanoTime() before the operation
+    public void record(Operation operation, long startNanos) {
+        histograms[operation.ordinal()].record(System.nanoTime() - startNanos);
+    }
+
+    // One timed call that handled items students; each counts with the average latency
+    public void record(Operation operation, long startNanos, int items) {
+        if (items > 0) {
+            histograms[operation.ordinal()].record((System.nanoTime() - startNanos) / items, items);
+        }
+    }
+
+    // Set by queue managers so snapshots show how many students are waiting
+    public void setQueueDepth(IntSupplier queueDepth) {
+        this.queueDepth = queueDepth;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public int getQueueDepth() {
+        IntSupplier depth = queueDepth;
+        return depth == null ? -1 : depth.getAsInt();
+    }
+
+    @Override
+    public MetricsSnapshot getSnapshot() {
+        return snapshot();
+    }
+
+    public MetricsSnapshot snapshot() {
+        double seconds = (System.nanoTime() - startedNanos) / 1e9;
+        List<OperationSnapshot> operations = new ArrayList<>();
+        for (Operation operation : Operation.values()) {
+            OperationSnapshot snapshot = histograms[operation.ordinal()].snapshot(operation.name(), seconds);
+            if (snapshot.getCount() > 0) {
+                operations.add(snapshot);
+            }
+        }
+        return new MetricsSnapshot(name, seconds, getQueueDepth(), operations);
+    }
+
+    @Override
+    public void reset() {
+        for (LatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
+        startedNanos = System.nanoTime();
+    }
+
+    // Publish as com.aiiqlabs:type=StudentMetrics,name=<name> on the platform MBean server
+    public synchronized StudentMetrics register() {
+        if (objectName == null) {
+            try {
+                ObjectName on = new ObjectName("com.aiiqlabs:type=StudentMetrics,name=" + ObjectName.quote(name));
+                ManagementFactory.getPlatformMBeanServer().registerMBean(this, on);
+                objectName = on;
+            } catch (JMException e) {
+                throw new IllegalStateException("Could not register metrics " + name, e);
+            }
+        }
+        return this;
+    }
+
+    public synchronized void unregister() {
+        if (objectName != null) {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            try {
+                server.unregisterMBean(objectName);
+            } catch (JMException e) {
+                throw new IllegalStateException("Could not unregister metrics " + name, e);
+            }
+            objectName = null;
+        }
+    }
+}
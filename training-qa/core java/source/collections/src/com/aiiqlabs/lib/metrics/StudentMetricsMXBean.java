@@ -0,0 +1,18 @@
+package com.aiiqlabs.lib.metrics;
+
+// What StudentMetrics shows over JMX, e.g. in JConsole or VisualVM
+public interface StudentMetricsMXBean {
+
+    String getName();
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    // -1 when not attached to a queue
+    int getQueueDepth();
+
+    MetricsSnapshot getSnapshot();
+
+    void reset();
+}
@@ -0,0 +1,14 @@
+package com.aiiqlabs.lib.queue;
+
+// What a bounded queue does with addStudent when it is full
+public enum BackpressurePolicy {
+
+    // Park the producer until a slot frees up
+    BLOCK,
+
+    // Return false straight away
+    FAIL,
+
+    // Busy-spin until a slot frees up (lowest latency, burns a core)
+    SPIN
+}
@@ -0,0 +1,358 @@
+package com.aiiqlabs.lib.queue;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+
+import com.aiiqlabs.lib.util.IntIntHashMap;
+import com.aiiqlabs.modal.Student;
+
+// Highest-marks-first queue for marks in a known range: the range is cut
+// into fixed-width buckets (0.01 wide over 0-100 by default), each bucket a
+// linked list in serving order, and a two-level bitmap of non-empty buckets
+// finds the next bucket down in a couple of word scans. Offer and poll never
+// compare against other buckets, so both are O(1) however many are queued.
+//
+// Within a bucket students are kept sorted by their exact marks, so marks
+// that do not sit on the bucket grid (or fall outside the range and share
+// the end buckets) are still served in the right order; they just cost a
+// short walk on offer. Equal marks are served first come, first served.
+//
+// Like IndexedStudentHeap, orders by the marks given on offer/reprioritize
+// as Double.compare does (NaN first, 0.0 before -0.0) and needs unique
+// student ids.
+public class BucketStudentQueue extends AbstractQueue<Student> implements StudentPriorityQueue {
+
+    private static final int MAX_BUCKETS = 1 << 24;
+    private static final int NONE = -1;
+
+    private final double minMarks;
+    private final double resolution;
+    private final int[] head;       // per bucket, first slot to serve
+    private final int[] tail;
+    private final long[] occupied;  // bit per non-empty bucket
+    private final long[] summary;   // bit per non-zero occupied word
+    private int top = NONE;         // highest non-empty bucket
+
+    // Queued students live in slots; free slots are chained through next
+    private Student[] students;
+    private double[] keys;
+    private int[] next;
+    private int[] prev;
+    private int[] bucketOf;
+    private int freeSlot = NONE;
+    private int usedSlots;
+    private int size;
+    private final IntIntHashMap slotById;
+
+    // Marks 0-100 in steps of 0.01
+    public BucketStudentQueue() {
+        this(0, 100, 0.01);
+    }
+
+    public BucketStudentQueue(double minMarks, double maxMarks, double resolution) {
+        if (!(resolution > 0) || !(maxMarks > minMarks)) {
+            throw new IllegalArgumentException("Need minMarks < maxMarks and a positive resolution");
+        }
+        double buckets = Math.floor((maxMarks - minMarks) / resolution) + 1;
+        if (buckets > MAX_BUCKETS) {
+            throw new IllegalArgumentException("Too many buckets: " + (long) buckets);
+        }
+        this.minMarks = minMarks;
+        this.resolution = resolution;
+        int bucketCount = (int) buckets;
+        head = new int[bucketCount];
+        tail = new int[bucketCount];
+        Arrays.fill(head, NONE);
+        Arrays.fill(tail, NONE);
+        occupied = new long[(bucketCount + 63) >>> 6];
+        summary = new long[(occupied.length + 63) >>> 6];
+        students = new Student[16];
+        keys = new double[16];
+        next = new int[16];
+        prev = new int[16];
+        bucketOf = new int[16];
+        slotById = new IntIntHashMap(16);
+    }
+
+    @Override
+    public boolean offer(Student s) {
+        if (slotById.containsKey(s.getId())) {
+            throw new IllegalArgumentException("Student " + s.getId() + " is already queued");
+        }
+        int slot = allocate();
+        students[slot] = s;
+        slotById.put(s.getId(), slot);
+        link(slot, s.getMarks());
+        size++;
+        return true;
+    }
+
+    @Override
+    public Student poll() {
+        if (size == 0) {
+            return null;
+        }
+        int slot = head[top];
+        Student s = students[slot];
+        unlink(slot);
+        release(slot);
+        return s;
+    }
+
+    @Override
+    public Student peek() {
+        return size == 0 ? null : students[head[top]];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    // Change a queued student's marks and move it behind the students
+    // already queued with those marks - O(1) on the bucket grid
+    @Override
+    public boolean reprioritize(int studentId, double newMarks) {
+        int slot = slotById.get(studentId);
+        if (slot < 0) {
+            return false;
+        }
+        students[slot].setMarks(newMarks);
+        if (Double.compare(keys[slot], newMarks) != 0) {
+            unlink(slot);
+            link(slot, newMarks);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean containsStudent(int studentId) {
+        return slotById.containsKey(studentId);
+    }
+
+    @Override
+    public Student removeStudent(int studentId) {
+        int slot = slotById.get(studentId);
+        if (slot < 0) {
+            return null;
+        }
+        Student s = students[slot];
+        unlink(slot);
+        release(slot);
+        return s;
+    }
+
+    // Queue.remove(Object): unlinks from its bucket in O(1) rather than a scan
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof Student)) {
+            return false;
+        }
+        int slot = slotById.get(((Student) o).getId());
+        if (slot < 0 || students[slot] != o) {
+            return false;
+        }
+        unlink(slot);
+        release(slot);
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof Student)) {
+            return false;
+        }
+        int slot = slotById.get(((Student) o).getId());
+        return slot >= 0 && students[slot] == o;
+    }
+
+    // The iterator cannot remove, so bulk removal unlinks by id too
+    @Override
+    public boolean removeIf(Predicate<? super Student> filter) {
+        List<Student> matched = new ArrayList<>();
+        for (Student s : this) {
+            if (filter.test(s)) {
+                matched.add(s);
+            }
+        }
+        for (Student s : matched) {
+            removeStudent(s.getId());
+        }
+        return !matched.isEmpty();
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        return removeIf(c::contains);
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        return removeIf(s -> !c.contains(s));
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(head, NONE);
+        Arrays.fill(tail, NONE);
+        Arrays.fill(occupied, 0);
+        Arrays.fill(summary, 0);
+        Arrays.fill(students, 0, usedSlots, null);
+        top = NONE;
+        freeSlot = NONE;
+        usedSlots = 0;
+        size = 0;
+        slotById.clear();
+    }
+
+    // Serving order, highest marks first
+    @Override
+    public Iterator<Student> iterator() {
+        return new Iterator<Student>() {
+            private int slot = top == NONE ? NONE : head[top];
+
+            @Override
+            public boolean hasNext() {
+                return slot != NONE;
+            }
+
+            @Override
+            public Student next() {
+                if (slot == NONE) {
+                    throw new NoSuchElementException();
+                }
+                Student s = students[slot];
+                int bucket = bucketOf[slot];
+                slot = next[slot];
+                if (slot == NONE) {
+                    int lower = highestBelow(bucket);
+                    slot = lower == NONE ? NONE : head[lower];
+                }
+                return s;
+            }
+        };
+    }
+
+    // Off-grid and out-of-range marks still land in a bucket that keeps the
+    // order, as the mapping only has to be monotonic; NaN takes the top bucket
+    private int bucket(double marks) {
+        if (Double.isNaN(marks)) {
+            return head.length - 1;
+        }
+        if (!(marks > minMarks)) {
+            return 0;
+        }
+        double b = Math.rint((marks - minMarks) / resolution);
+        return b >= head.length ? head.length - 1 : (int) b;
+    }
+
+    // Insert after the last student in the bucket with marks >= these
+    // by Double.compare
+    private void link(int slot, double marks) {
+        int b = bucket(marks);
+        keys[slot] = marks;
+        bucketOf[slot] = b;
+        int after = tail[b];
+        while (after != NONE && Double.compare(keys[after], marks) < 0) {
+            after = prev[after];
+        }
+        int before = after == NONE ? head[b] : next[after];
+        prev[slot] = after;
+        next[slot] = before;
+        if (after == NONE) {
+            head[b] = slot;
+        } else {
+            next[after] = slot;
+        }
+        if (before == NONE) {
+            tail[b] = slot;
+        } else {
+            prev[before] = slot;
+        }
+        if (head[b] == slot && next[slot] == NONE) {
+            int word = b >>> 6;
+            occupied[word] |= 1L << b;
+            summary[word >>> 6] |= 1L << word;
+        }
+        if (b > top) {
+            top = b;
+        }
+    }
+
+    private void unlink(int slot) {
+        int b = bucketOf[slot];
+        int after = prev[slot];
+        int before = next[slot];
+        if (after == NONE) {
+            head[b] = before;
+        } else {
+            next[after] = before;
+        }
+        if (before == NONE) {
+            tail[b] = after;
+        } else {
+            prev[before] = after;
+        }
+        if (head[b] == NONE) {
+            int word = b >>> 6;
+            occupied[word] &= ~(1L << b);
+            if (occupied[word] == 0) {
+                summary[word >>> 6] &= ~(1L << word);
+            }
+            if (b == top) {
+                top = highestBelow(b);
+            }
+        }
+    }
+
+    // Highest non-empty bucket below b, or NONE
+    private int highestBelow(int b) {
+        int word = b >>> 6;
+        long bits = occupied[word] & ((1L << b) - 1);
+        if (bits != 0) {
+            return (word << 6) + 63 - Long.numberOfLeadingZeros(bits);
+        }
+        for (int s = word >>> 6; s >= 0; s--) {
+            long words = summary[s];
+            if (s == word >>> 6) {
+                words &= (1L << word) - 1;
+            }
+            if (words != 0) {
+                int w = (s << 6) + 63 - Long.numberOfLeadingZeros(words);
+                return (w << 6) + 63 - Long.numberOfLeadingZeros(occupied[w]);
+            }
+        }
+        return NONE;
+    }
+
+    private int allocate() {
+        if (freeSlot != NONE) {
+            int slot = freeSlot;
+            freeSlot = next[slot];
+            return slot;
+        }
+        if (usedSlots == students.length) {
+            int capacity = usedSlots + (usedSlots >> 1) + 1;
+            students = Arrays.copyOf(students, capacity);
+            keys = Arrays.copyOf(keys, capacity);
+            next = Arrays.copyOf(next, capacity);
+            prev = Arrays.copyOf(prev, capacity);
+            bucketOf = Arrays.copyOf(bucketOf, capacity);
+        }
+        return usedSlots++;
+    }
+
+    private void release(int slot) {
+        slotById.remove(students[slot].getId());
+        students[slot] = null;
+        next[slot] = freeSlot;
+        freeSlot = slot;
+        size--;
+    }
+}
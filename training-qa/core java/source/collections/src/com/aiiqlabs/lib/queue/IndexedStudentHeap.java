@@ -0,0 +1,252 @@
+package com.aiiqlabs.lib.queue;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+
+import com.aiiqlabs.lib.util.IntIntHashMap;
+import com.aiiqlabs.modal.Student;
+
+// 4-ary max-heap on marks that tracks where every student id sits, so a
+// student's priority can be changed in O(log n) instead of remove + re-add.
+// The heap orders by the marks it was given on offer/reprioritize, so calling
+// Student.setMarks directly cannot corrupt it. Student ids must be unique.
+// Marks compare as Double.compare does, like the PriorityQueue this replaced:
+// NaN above everything, 0.0 above -0.0.
+public class IndexedStudentHeap extends AbstractQueue<Student> implements StudentPriorityQueue {
+
+    private static final int ARITY = 4;
+
+    private Student[] heap;
+    private double[] keys;
+    private int size;
+    private IntIntHashMap positionById;
+
+    public IndexedStudentHeap() {
+        this(16);
+    }
+
+    public IndexedStudentHeap(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 1);
+        heap = new Student[capacity];
+        keys = new double[capacity];
+        positionById = new IntIntHashMap(capacity);
+    }
+
+    @Override
+    public boolean offer(Student s) {
+        if (positionById.containsKey(s.getId())) {
+            throw new IllegalArgumentException("Student " + s.getId() + " is already queued");
+        }
+        if (size == heap.length) {
+            int capacity = size + (size >> 1) + 1;
+            heap = Arrays.copyOf(heap, capacity);
+            keys = Arrays.copyOf(keys, capacity);
+        }
+        place(size, s, s.getMarks());
+        siftUp(size++);
+        return true;
+    }
+
+    @Override
+    public Student poll() {
+        if (size == 0) {
+            return null;
+        }
+        Student top = heap[0];
+        removeAt(0);
+        return top;
+    }
+
+    @Override
+    public Student peek() {
+        return size == 0 ? null : heap[0];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    // Change a queued student's marks and restore heap order - O(log n)
+    @Override
+    public boolean reprioritize(int studentId, double newMarks) {
+        int pos = positionById.get(studentId);
+        if (pos < 0) {
+            return false;
+        }
+        double old = keys[pos];
+        heap[pos].setMarks(newMarks);
+        keys[pos] = newMarks;
+        int order = Double.compare(newMarks, old);
+        if (order > 0) {
+            siftUp(pos);
+        } else if (order < 0) {
+            siftDown(pos);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean containsStudent(int studentId) {
+        return positionById.containsKey(studentId);
+    }
+
+    // Remove a queued student wherever it sits - O(log n)
+    @Override
+    public Student removeStudent(int studentId) {
+        int pos = positionById.get(studentId);
+        if (pos < 0) {
+            return null;
+        }
+        Student s = heap[pos];
+        removeAt(pos);
+        return s;
+    }
+
+    // Queue.remove(Object): O(log n) through the id index rather than a scan
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof Student)) {
+            return false;
+        }
+        int pos = positionById.get(((Student) o).getId());
+        if (pos < 0 || heap[pos] != o) {
+            return false;
+        }
+        removeAt(pos);
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof Student)) {
+            return false;
+        }
+        int pos = positionById.get(((Student) o).getId());
+        return pos >= 0 && heap[pos] == o;
+    }
+
+    // The iterator cannot remove, so bulk removal goes through the id index too
+    @Override
+    public boolean removeIf(Predicate<? super Student> filter) {
+        List<Student> matched = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            if (filter.test(heap[i])) {
+                matched.add(heap[i]);
+            }
+        }
+        for (Student s : matched) {
+            removeStudent(s.getId());
+        }
+        return !matched.isEmpty();
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        return removeIf(c::contains);
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        return removeIf(s -> !c.contains(s));
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(heap, 0, size, null);
+        size = 0;
+        positionById.clear();
+    }
+
+    // Heap order, like PriorityQueue's iterator
+    @Override
+    public Iterator<Student> iterator() {
+        return new Iterator<Student>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public Student next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                return heap[next++];
+            }
+        };
+    }
+
+    private void removeAt(int pos) {
+        positionById.remove(heap[pos].getId());
+        int last = --size;
+        if (pos != last) {
+            double key = keys[last];
+            place(pos, heap[last], key);
+            heap[last] = null;
+            if (pos > 0 && Double.compare(key, keys[parent(pos)]) > 0) {
+                siftUp(pos);
+            } else {
+                siftDown(pos);
+            }
+        } else {
+            heap[last] = null;
+        }
+    }
+
+    private void siftUp(int pos) {
+        Student s = heap[pos];
+        double key = keys[pos];
+        while (pos > 0) {
+            int parent = parent(pos);
+            if (Double.compare(keys[parent], key) >= 0) {
+                break;
+            }
+            place(pos, heap[parent], keys[parent]);
+            pos = parent;
+        }
+        place(pos, s, key);
+    }
+
+    private void siftDown(int pos) {
+        Student s = heap[pos];
+        double key = keys[pos];
+        while (true) {
+            int first = pos * ARITY + 1;
+            if (first >= size) {
+                break;
+            }
+            int best = first;
+            int end = Math.min(first + ARITY, size);
+            for (int child = first + 1; child < end; child++) {
+                if (Double.compare(keys[child], keys[best]) > 0) {
+                    best = child;
+                }
+            }
+            if (Double.compare(keys[best], key) <= 0) {
+                break;
+            }
+            place(pos, heap[best], keys[best]);
+            pos = best;
+        }
+        place(pos, s, key);
+    }
+
+    private void place(int pos, Student s, double key) {
+        heap[pos] = s;
+        keys[pos] = key;
+        positionById.put(s.getId(), pos);
+    }
+
+    private static int parent(int pos) {
+        return (pos - 1) / ARITY;
+    }
+}
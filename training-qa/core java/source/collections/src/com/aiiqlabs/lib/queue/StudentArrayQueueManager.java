@@ -2,12 +2,16 @@ package com.aiiqlabs.lib.queue;
 
 import java.util.ArrayDeque;
 import java.util.Queue;
+import java.util.function.Consumer;
 
+import com.aiiqlabs.lib.metrics.OperationTimer;
+import com.aiiqlabs.lib.metrics.StudentMetrics;
 import com.aiiqlabs.modal.Student;
 
 public class StudentArrayQueueManager {
 
     private Queue<Student> queue;
+    private final OperationTimer timer = new OperationTimer();
 
     public StudentArrayQueueManager() {
         queue = new ArrayDeque<>(); 
@@ -15,17 +19,30 @@ public class StudentArrayQueueManager {
 
     // Add student to queue
     public void addStudent(Student s) {
+        long start = timer.start();
         queue.offer(s);
+        timer.stop(StudentMetrics.Operation.OFFER, start);
     }
 
     // Serve next student (remove from front)
     public Student serveStudent() {
-        return queue.poll();
+        long start = timer.start();
+        Student s = queue.poll();
+        timer.stop(StudentMetrics.Operation.SERVE, start);
+        return s;
     }
 
     // View next student without removing
     public Student peekNextStudent() {
-        return queue.peek();
+        long start = timer.start();
+        Student s = queue.peek();
+        timer.stop(StudentMetrics.Operation.PEEK, start);
+        return s;
+    }
+
+    // Visit waiting students in queue order, e.g. to export them
+    public void forEachStudent(Consumer<? super Student> action) {
+        queue.forEach(action);
     }
 
     public void printQueue() {
@@ -42,4 +59,11 @@ public class StudentArrayQueueManager {
     public int getQueueSize() {
         return queue.size();
     }
+
+    public void setMetrics(StudentMetrics metrics) {
+        if (metrics != null) {
+            metrics.setQueueDepth(() -> queue.size());
+        }
+        timer.setMetrics(metrics);
+    }
 }
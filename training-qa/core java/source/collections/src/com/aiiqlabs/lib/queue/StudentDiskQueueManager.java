@@ -0,0 +1,323 @@
+package com.aiiqlabs.lib.queue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+import com.aiiqlabs.lib.metrics.OperationTimer;
+import com.aiiqlabs.lib.metrics.StudentMetrics;
+import com.aiiqlabs.modal.Student;
+
+// FIFO queue of students kept on disk, so it survives restarts and can hold
+// far more students than fit on the heap. Students are appended to fixed-size
+// memory-mapped segment files, and a small mapped cursor file holds the read
+// and write offsets. Once the reader has passed the end of a segment, the
+// segment file is deleted.
+//
+// Only the segment being written and the one being read are mapped, so heap
+// use stays the same whether ten or a billion students are waiting.
+//
+// Offsets count bytes from the start of the first segment ever written, so
+// each cursor is one aligned long and moves in a single write: a record is
+// written first and published by moving the write offset, and a process crash
+// loses nothing that add returned for. Mapped pages reach the disk when the
+// OS writes them back; call flush() where a power loss must not lose adds.
+// A full segment is forced to disk as writing moves on to the next, so
+// flush() only has the current segment and the cursors left to push.
+//
+// Directory layout: queue.cursor, queue-<n>.seg (segments in order)
+// Record: [int length][int id][double marks][name (UTF-8)]; length -1 ends a segment
+public class StudentDiskQueueManager implements AutoCloseable {
+
+    public static final int DEFAULT_SEGMENT_BYTES = 64 << 20;
+
+    private static final String CURSOR = "queue.cursor";
+    private static final int MAGIC = 0x53545551;    // "STUQ"
+    private static final int VERSION = 1;
+    private static final int CURSOR_SIZE = 64;
+    private static final int RECORD_HEADER = 16;
+    private static final int END_OF_SEGMENT = -1;
+
+    // Cursor file offsets
+    private static final int MAGIC_AT = 0;
+    private static final int VERSION_AT = 4;
+    private static final int SEGMENT_BYTES_AT = 8;
+    private static final int READ_AT = 16;
+    private static final int WRITE_AT = 24;
+    private static final int COUNT_AT = 32;
+
+    private final Path directory;
+    private final FileChannel cursorChannel;
+    private final MappedByteBuffer cursor;
+    private final int segmentBytes;
+    private MappedByteBuffer readSegment;
+    private MappedByteBuffer writeSegment;
+    private long readNumber;
+    private long writeNumber;
+    private final OperationTimer timer = new OperationTimer();
+
+    private StudentDiskQueueManager(Path directory, FileChannel cursorChannel, MappedByteBuffer cursor,
+            int segmentBytes) {
+        this.directory = directory;
+        this.cursorChannel = cursorChannel;
+        this.cursor = cursor;
+        this.segmentBytes = segmentBytes;
+    }
+
+    // Open the queue in the directory, or create an empty one
+    public static StudentDiskQueueManager open(Path directory) throws IOException {
+        return open(directory, DEFAULT_SEGMENT_BYTES);
+    }
+
+    // segmentBytes only applies to a new queue; an existing one keeps its own
+    public static StudentDiskQueueManager open(Path directory, int segmentBytes) throws IOException {
+        if (segmentBytes < 4096) {
+            throw new IllegalArgumentException("Segments must be at least 4096 bytes");
+        }
+        Files.createDirectories(directory);
+        Path file = directory.resolve(CURSOR);
+        boolean exists = Files.exists(file) && Files.size(file) > 0;
+        FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            MappedByteBuffer cursor = channel.map(FileChannel.MapMode.READ_WRITE, 0, CURSOR_SIZE);
+            cursor.order(ByteOrder.LITTLE_ENDIAN);
+            if (exists) {
+                if (cursor.getInt(MAGIC_AT) != MAGIC || cursor.getInt(VERSION_AT) != VERSION) {
+                    throw new IOException("Not a student queue: " + directory);
+                }
+                segmentBytes = cursor.getInt(SEGMENT_BYTES_AT);
+            } else {
+                cursor.putInt(MAGIC_AT, MAGIC);
+                cursor.putInt(VERSION_AT, VERSION);
+                cursor.putInt(SEGMENT_BYTES_AT, segmentBytes);
+            }
+            StudentDiskQueueManager queue = new StudentDiskQueueManager(directory, channel, cursor, segmentBytes);
+            queue.attach();
+            return queue;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Add student to the back of the queue
+    public synchronized void addStudent(Student s) {
+        long start = timer.start();
+        byte[] name = s.getName().getBytes(StandardCharsets.UTF_8);
+        int length = RECORD_HEADER + name.length;
+        if (length > segmentBytes) {
+            throw new IllegalArgumentException("Name too long for a " + segmentBytes + " byte segment: " + s.getName());
+        }
+        long write = cursor.getLong(WRITE_AT);
+        long number = write / segmentBytes;
+        int position = (int) (write % segmentBytes);
+        if (position + length > segmentBytes) {
+            if (position + 4 <= segmentBytes) {
+                writeSegment.putInt(position, END_OF_SEGMENT);
+            }
+            number++;
+            position = 0;
+        }
+        if (number != writeNumber) {
+            writeSegment.force();       // flush() only reaches the segment being written
+            writeSegment = mapUnchecked(number);
+            writeNumber = number;
+        }
+        writeSegment.putInt(position + 4, s.getId());
+        writeSegment.putDouble(position + 8, s.getMarks());
+        writeSegment.put(position + RECORD_HEADER, name, 0, name.length);
+        writeSegment.putInt(position, length);
+        cursor.putLong(WRITE_AT, number * segmentBytes + position + length);     // publishes the record
+        cursor.putLong(COUNT_AT, cursor.getLong(COUNT_AT) + 1);
+        timer.stop(StudentMetrics.Operation.OFFER, start);
+    }
+
+    // Serve the student at the front; null if the queue is empty
+    public synchronized Student serveStudent() {
+        long start = timer.start();
+        Student s = null;
+        if (!isEmpty()) {
+            long read = nextRecord();
+            int position = (int) (read % segmentBytes);
+            s = read(readSegment, position);
+            cursor.putLong(READ_AT, read + readSegment.getInt(position));
+            cursor.putLong(COUNT_AT, cursor.getLong(COUNT_AT) - 1);
+        }
+        timer.stop(StudentMetrics.Operation.SERVE, start);
+        return s;
+    }
+
+    // View the student at the front without removing it
+    public synchronized Student peekNextStudent() {
+        long start = timer.start();
+        Student s = null;
+        if (!isEmpty()) {
+            int position = (int) (nextRecord() % segmentBytes);
+            s = read(readSegment, position);
+        }
+        timer.stop(StudentMetrics.Operation.PEEK, start);
+        return s;
+    }
+
+    // Visit waiting students in queue order, e.g. to export them. Maps the
+    // segments one at a time, so it reads the whole backlog from disk.
+    public synchronized void forEachStudent(Consumer<? super Student> action) {
+        long write = cursor.getLong(WRITE_AT);
+        long offset = cursor.getLong(READ_AT);
+        long number = -1;
+        MappedByteBuffer segment = null;
+        while (offset < write) {
+            if (offset / segmentBytes != number) {
+                number = offset / segmentBytes;
+                segment = number == readNumber ? readSegment : number == writeNumber ? writeSegment : mapUnchecked(number);
+            }
+            int position = (int) (offset % segmentBytes);
+            if (endOfSegment(segment, position)) {
+                offset = (number + 1) * segmentBytes;
+                continue;
+            }
+            action.accept(read(segment, position));
+            offset += segment.getInt(position);
+        }
+    }
+
+    public void printQueue() {
+        if (isQueueEmpty()) {
+            System.out.println("Queue is empty");
+            return;
+        }
+        forEachStudent(System.out::println);
+    }
+
+    // Capped at Integer.MAX_VALUE; see getQueueLength for larger backlogs
+    public int getQueueSize() {
+        return (int) Math.min(getQueueLength(), Integer.MAX_VALUE);
+    }
+
+    public synchronized long getQueueLength() {
+        return cursor.getLong(COUNT_AT);
+    }
+
+    public synchronized boolean isQueueEmpty() {
+        return isEmpty();
+    }
+
+    // Number of segment files on disk, including the one being written
+    public synchronized long getSegmentCount() {
+        return writeNumber - cursor.getLong(READ_AT) / segmentBytes + 1;
+    }
+
+    // Push the segment being written and the cursors to disk, in that order;
+    // earlier segments were forced when they filled up
+    public synchronized void flush() {
+        writeSegment.force();
+        cursor.force();
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            flush();
+            cursorChannel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void setMetrics(StudentMetrics metrics) {
+        if (metrics != null) {
+            metrics.setQueueDepth(this::getQueueSize);
+        }
+        timer.setMetrics(metrics);
+    }
+
+    // Map the cursors' segments and delete any left over from a crash mid-rollover
+    private void attach() throws IOException {
+        readNumber = cursor.getLong(READ_AT) / segmentBytes;
+        writeNumber = cursor.getLong(WRITE_AT) / segmentBytes;
+        writeSegment = map(writeNumber);
+        readSegment = readNumber == writeNumber ? writeSegment : map(readNumber);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "queue-*.seg")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                long number = Long.parseLong(name.substring(6, name.length() - 4));
+                if (number < readNumber || number > writeNumber) {
+                    Files.delete(file);
+                }
+            }
+        }
+        if (isEmpty()) {
+            cursor.putLong(COUNT_AT, 0);    // the count trails the offsets if a crash split them
+        }
+    }
+
+    private boolean isEmpty() {
+        return cursor.getLong(READ_AT) == cursor.getLong(WRITE_AT);
+    }
+
+    // Offset of the next record to serve, moving the reader into the next
+    // segment (and deleting the finished one) when it is at a segment's end
+    private long nextRecord() {
+        long read = cursor.getLong(READ_AT);
+        if (read / segmentBytes == readNumber && !endOfSegment(readSegment, (int) (read % segmentBytes))) {
+            return read;
+        }
+        long finished = readNumber;
+        if (read / segmentBytes == readNumber) {
+            read = (readNumber + 1) * segmentBytes;
+            cursor.putLong(READ_AT, read);
+        }
+        readNumber = read / segmentBytes;
+        readSegment = readNumber == writeNumber ? writeSegment : mapUnchecked(readNumber);
+        try {
+            for (long number = finished; number < readNumber; number++) {
+                Files.deleteIfExists(segmentPath(number));
+            }
+        } catch (IOException e) {
+            // left for attach() to delete on the next open
+        }
+        return read;
+    }
+
+    private boolean endOfSegment(MappedByteBuffer segment, int position) {
+        return position + 4 > segmentBytes || segment.getInt(position) == END_OF_SEGMENT;
+    }
+
+    private static Student read(MappedByteBuffer segment, int position) {
+        int length = segment.getInt(position);
+        byte[] name = new byte[length - RECORD_HEADER];
+        segment.get(position + RECORD_HEADER, name, 0, name.length);
+        return new Student(segment.getInt(position + 4), new String(name, StandardCharsets.UTF_8),
+                segment.getDouble(position + 8));
+    }
+
+    private MappedByteBuffer map(long number) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(number),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+            segment.order(ByteOrder.LITTLE_ENDIAN);
+            return segment;
+        }
+    }
+
+    private MappedByteBuffer mapUnchecked(long number) {
+        try {
+            return map(number);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path segmentPath(long number) {
+        return directory.resolve(String.format("queue-%08d.seg", number));
+    }
+}
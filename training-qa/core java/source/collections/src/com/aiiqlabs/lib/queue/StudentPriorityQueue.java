@@ -0,0 +1,18 @@
+package com.aiiqlabs.lib.queue;
+
+import java.util.Queue;
+
+import com.aiiqlabs.modal.Student;
+
+// Highest-marks-first queue of students with unique ids, whose queued
+// students can be re-prioritized or removed by id
+public interface StudentPriorityQueue extends Queue<Student> {
+
+    // Change a queued student's marks and move it to its new place
+    boolean reprioritize(int studentId, double newMarks);
+
+    boolean containsStudent(int studentId);
+
+    // Remove a queued student wherever it sits; null if not queued
+    Student removeStudent(int studentId);
+}
@@ -1,31 +1,71 @@
 package com.aiiqlabs.lib.queue;
 
-import java.util.Comparator;
-import java.util.PriorityQueue;
-import java.util.Queue;
+import java.util.function.Consumer;
 
+import com.aiiqlabs.lib.metrics.OperationTimer;
+import com.aiiqlabs.lib.metrics.StudentMetrics;
 import com.aiiqlabs.modal.Student;
 
 public class StudentPriorityQueueManager {
 
-    private Queue<Student> queue;
+    // Highest marks first; indexed so queued students can be re-prioritized
+    private StudentPriorityQueue queue;
+    private final OperationTimer timer = new OperationTimer();
 
     public StudentPriorityQueueManager() {
-        queue = new PriorityQueue<>(
-            Comparator.comparingDouble(Student::getMarks).reversed()
-        );
+        this("HEAP");
     }
 
+    // HEAP: any marks, O(log n) add and serve
+    // BUCKET: marks 0-100 in steps of 0.01, O(1) add and serve, equal marks served in arrival order
+    public StudentPriorityQueueManager(String type) {
+        switch (type.toUpperCase()) {
+            case "HEAP":
+                queue = new IndexedStudentHeap();
+                break;
+            case "BUCKET":
+                queue = new BucketStudentQueue();
+                break;
+            default:
+                throw new IllegalArgumentException("Invalid queue type");
+        }
+    }
+
+    // e.g. a BucketStudentQueue over a different marks range
+    public StudentPriorityQueueManager(StudentPriorityQueue queue) {
+        this.queue = queue;
+    }
+
+    // Unlike a PriorityQueue, each id waits at most once: adding a student
+    // whose id is already queued throws IllegalArgumentException
     public void addStudent(Student s) {
+        long start = timer.start();
         queue.offer(s);
+        timer.stop(StudentMetrics.Operation.OFFER, start);
     }
 
     public Student serveStudent() {
-        return queue.poll();  // Removes highest priority student
+        long start = timer.start();
+        Student s = queue.poll();  // Removes highest priority student
+        timer.stop(StudentMetrics.Operation.SERVE, start);
+        return s;
     }
 
     public Student peekTopStudent() {
-        return queue.peek();
+        long start = timer.start();
+        Student s = queue.peek();
+        timer.stop(StudentMetrics.Operation.PEEK, start);
+        return s;
+    }
+
+    // Change marks of a queued student and move it to its new place
+    public boolean reprioritize(int studentId, double newMarks) {
+        return queue.reprioritize(studentId, newMarks);
+    }
+
+    // Visit waiting students in queue order, e.g. to export them
+    public void forEachStudent(Consumer<? super Student> action) {
+        queue.forEach(action);
     }
 
     public void printQueue() {
@@ -37,5 +77,15 @@ public class StudentPriorityQueueManager {
     public boolean isEmpty() {
         return queue.isEmpty();
     }
-}
 
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public void setMetrics(StudentMetrics metrics) {
+        if (metrics != null) {
+            metrics.setQueueDepth(this::getQueueSize);
+        }
+        timer.setMetrics(metrics);
+    }
+}
@@ -2,12 +2,16 @@ package com.aiiqlabs.lib.queue;
 
 import java.util.LinkedList;
 import java.util.Queue;
+import java.util.function.Consumer;
 
+import com.aiiqlabs.lib.metrics.OperationTimer;
+import com.aiiqlabs.lib.metrics.StudentMetrics;
 import com.aiiqlabs.modal.Student;
 
 public class StudentQueueManager {
 
     private Queue<Student> queue;
+    private final OperationTimer timer = new OperationTimer();
 
     public StudentQueueManager() {
         queue = new LinkedList<>();
@@ -15,17 +19,30 @@ public class StudentQueueManager {
 
     // Add student to queue
     public void addStudent(Student s) {
+        long start = timer.start();
         queue.offer(s);
+        timer.stop(StudentMetrics.Operation.OFFER, start);
     }
 
     // Serve next student
     public Student serveStudent() {
-        return queue.poll();  // Removes head
+        long start = timer.start();
+        Student s = queue.poll();  // Removes head
+        timer.stop(StudentMetrics.Operation.SERVE, start);
+        return s;
     }
 
     // View next student
     public Student peekNextStudent() {
-        return queue.peek();
+        long start = timer.start();
+        Student s = queue.peek();
+        timer.stop(StudentMetrics.Operation.PEEK, start);
+        return s;
+    }
+
+    // Visit waiting students in queue order, e.g. to export them
+    public void forEachStudent(Consumer<? super Student> action) {
+        queue.forEach(action);
     }
 
     // Print all waiting students
@@ -42,4 +59,11 @@ public class StudentQueueManager {
     public boolean isQueueEmpty() {
         return queue.isEmpty();
     }
+
+    public void setMetrics(StudentMetrics metrics) {
+        if (metrics != null) {
+            metrics.setQueueDepth(() -> queue.size());
+        }
+        timer.setMetrics(metrics);
+    }
 }
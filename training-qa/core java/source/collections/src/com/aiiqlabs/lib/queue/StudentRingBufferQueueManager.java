@@ -0,0 +1,232 @@
+package com.aiiqlabs.lib.queue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import com.aiiqlabs.lib.metrics.OperationTimer;
+import com.aiiqlabs.lib.metrics.StudentMetrics;
+import com.aiiqlabs.modal.Student;
+
+// Bounded multi-producer / multi-consumer FIFO queue on a pre-allocated ring.
+// Every slot carries a sequence number telling producers and consumers whose
+// turn it is, so add and serve are a single CAS each and nothing is allocated
+// per student. Safe to share between any number of threads.
+public class StudentRingBufferQueueManager {
+
+    private final Student[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();   // next position to fill
+    private final AtomicLong head = new AtomicLong();   // next position to serve
+    private final BackpressurePolicy policy;
+    private final OperationTimer timer = new OperationTimer();
+
+    public StudentRingBufferQueueManager(int capacity) {
+        this(capacity, BackpressurePolicy.BLOCK);
+    }
+
+    public StudentRingBufferQueueManager(int capacity, BackpressurePolicy policy) {
+        if (capacity < 2 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Capacity must be between 2 and 2^30");
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        slots = new Student[size];
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        mask = size - 1;
+        this.policy = policy;
+    }
+
+    // Add student to queue; false under FAIL when the queue is full, and under
+    // BLOCK when the thread is interrupted while waiting (the flag stays set)
+    public boolean addStudent(Student s) {
+        long start = timer.start();
+        boolean added = add(s);
+        timer.stop(StudentMetrics.Operation.OFFER, start);
+        return added;
+    }
+
+    // Serve next student, or null if the queue is empty
+    public Student serveStudent() {
+        long start = timer.start();
+        Student s = serve();
+        timer.stop(StudentMetrics.Operation.SERVE, start);
+        return s;
+    }
+
+    // Serve up to max students with one CAS and hand them to the consumer in order.
+    // Returns how many were served. If the consumer throws, the batch's slots are
+    // still given back to producers, and the students it did not take come back
+    // in an UnservedStudentsException whose cause is the consumer's exception.
+    public int serveStudents(int max, Consumer<Student> consumer) {
+        long start = timer.start();
+        int served = serve(max, consumer);
+        timer.stop(StudentMetrics.Operation.SERVE, start, served);
+        return served;
+    }
+
+    // View next student without removing
+    public Student peekNextStudent() {
+        long start = timer.start();
+        Student s = peek();
+        timer.stop(StudentMetrics.Operation.PEEK, start);
+        return s;
+    }
+
+    // Weakly consistent: students served or added meanwhile may or may not show
+    public void printQueue() {
+        long pos = head.get();
+        long end = tail.get();
+        if (pos >= end) {
+            System.out.println("Queue is empty");
+            return;
+        }
+        for (; pos < end; pos++) {
+            int index = (int) (pos & mask);
+            Student s = slots[index];
+            if (s != null && sequences.get(index) == pos + 1) {
+                System.out.println(s);
+            }
+        }
+    }
+
+    public int getQueueSize() {
+        long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(size, mask + 1));
+    }
+
+    public boolean isQueueEmpty() {
+        return getQueueSize() == 0;
+    }
+
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    // Batches from serveStudents count each student at the batch's average latency
+    public void setMetrics(StudentMetrics metrics) {
+        if (metrics != null) {
+            metrics.setQueueDepth(this::getQueueSize);
+        }
+        timer.setMetrics(metrics);
+    }
+
+    private boolean add(Student s) {
+        if (offer(s)) {
+            return true;
+        }
+        switch (policy) {
+            case FAIL:
+                return false;
+            case SPIN:
+                while (!offer(s)) {
+                    Thread.onSpinWait();
+                }
+                return true;
+            default:
+                long parkNanos = 1_000;
+                while (!offer(s)) {
+                    LockSupport.parkNanos(parkNanos);
+                    parkNanos = Math.min(parkNanos * 2, 1_000_000);
+                    if (Thread.interrupted()) {
+                        Thread.currentThread().interrupt();
+                        return false;
+                    }
+                }
+                return true;
+        }
+    }
+
+    private Student serve() {
+        long pos = head.get();
+        while (true) {
+            int index = (int) (pos & mask);
+            long ready = sequences.get(index) - (pos + 1);
+            if (ready == 0) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    return take(index, pos);
+                }
+                pos = head.get();
+            } else if (ready < 0) {
+                return null;
+            } else {
+                pos = head.get();
+            }
+        }
+    }
+
+    private int serve(int max, Consumer<Student> consumer) {
+        while (true) {
+            long pos = head.get();
+            int count = 0;
+            while (count < max && count <= mask && sequences.get((int) ((pos + count) & mask)) == pos + count + 1) {
+                count++;
+            }
+            if (count == 0) {
+                return 0;
+            }
+            if (head.compareAndSet(pos, pos + count)) {
+                Student current = null;
+                int i = 0;
+                try {
+                    for (; i < count; i++) {
+                        current = take((int) ((pos + i) & mask), pos + i);
+                        consumer.accept(current);
+                    }
+                } catch (RuntimeException e) {
+                    List<Student> unserved = new ArrayList<>(count - i);
+                    unserved.add(current);
+                    for (i++; i < count; i++) {
+                        unserved.add(take((int) ((pos + i) & mask), pos + i));
+                    }
+                    throw new UnservedStudentsException(unserved, e);
+                } finally {
+                    // claimed slots must go back to producers even on an Error
+                    for (i++; i < count; i++) {
+                        take((int) ((pos + i) & mask), pos + i);
+                    }
+                }
+                return count;
+            }
+        }
+    }
+
+    private Student peek() {
+        long pos = head.get();
+        int index = (int) (pos & mask);
+        return sequences.get(index) == pos + 1 ? slots[index] : null;
+    }
+
+    private boolean offer(Student s) {
+        long pos = tail.get();
+        while (true) {
+            int index = (int) (pos & mask);
+            long free = sequences.get(index) - pos;
+            if (free == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    slots[index] = s;
+                    sequences.set(index, pos + 1);      // publish to consumers
+                    return true;
+                }
+                pos = tail.get();
+            } else if (free < 0) {
+                return false;                           // full
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+
+    private Student take(int index, long pos) {
+        Student s = slots[index];
+        slots[index] = null;
+        sequences.set(index, pos + mask + 1);           // hand slot back to producers
+        return s;
+    }
+}
@@ -0,0 +1,286 @@
+package com.aiiqlabs.lib.queue;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+import com.aiiqlabs.lib.metrics.LatencyHistogram;
+import com.aiiqlabs.lib.metrics.OperationSnapshot;
+import com.aiiqlabs.modal.Student;
+
+// Serves the students of a StudentQueueManager or StudentPriorityQueueManager
+// concurrently: a dispatcher thread takes students in queue order and runs the
+// handler for each on its own thread, with at most maxConcurrency running.
+//
+// Handler threads are virtual threads when the JVM has them (Java 21+), so
+// thousands of handlers can block on I/O at once; on older JVMs they come
+// from a cached pool of platform threads.
+//
+// Producers go through submit(), which blocks (backpressure) while maxQueued
+// students are waiting. The queue manager is not thread-safe, so once it is
+// handed to an engine only the engine should touch it.
+public class StudentServingEngine implements AutoCloseable {
+
+    // Processes one student; may block
+    public interface StudentHandler {
+        void handle(Student s) throws Exception;
+    }
+
+    private final Supplier<Student> poll;
+    private final Consumer<Student> add;
+    private final IntSupplier size;
+    private final StudentHandler handler;
+    private final int maxQueued;
+    private final Semaphore permits;
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+    private final Thread dispatcher;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Map<Student, Long> enqueuedAt = new IdentityHashMap<>();
+    private boolean shutdown;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final LatencyHistogram serviceLatency = new LatencyHistogram();
+    private final LatencyHistogram totalLatency = new LatencyHistogram();
+    private final long startedNanos = System.nanoTime();
+
+    public StudentServingEngine(StudentQueueManager queue, StudentHandler handler, int maxConcurrency, int maxQueued) {
+        this(queue::serveStudent, queue::addStudent, queue::getQueueSize, handler, maxConcurrency, maxQueued);
+    }
+
+    // Serves highest marks first
+    public StudentServingEngine(StudentPriorityQueueManager queue, StudentHandler handler,
+            int maxConcurrency, int maxQueued) {
+        this(queue::serveStudent, queue::addStudent, queue::getQueueSize, handler, maxConcurrency, maxQueued);
+    }
+
+    private StudentServingEngine(Supplier<Student> poll, Consumer<Student> add, IntSupplier size,
+            StudentHandler handler, int maxConcurrency, int maxQueued) {
+        if (maxConcurrency < 1 || maxQueued < 1) {
+            throw new IllegalArgumentException("maxConcurrency and maxQueued must be at least 1");
+        }
+        this.poll = poll;
+        this.add = add;
+        this.size = size;
+        this.handler = handler;
+        this.maxQueued = maxQueued;
+        this.permits = new Semaphore(maxConcurrency);
+        ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.executor = virtual != null ? virtual : Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "student-handler");
+            t.setDaemon(true);
+            return t;
+        });
+        this.dispatcher = new Thread(this::dispatch, "student-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    // Queue a student, waiting while the queue is full. Throws
+    // RejectedExecutionException after shutdown.
+    public void submit(Student s) throws InterruptedException {
+        lock.lock();
+        try {
+            while (!shutdown && size.getAsInt() >= maxQueued) {
+                notFull.await();
+            }
+            enqueue(s);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // As submit, but gives up and returns false once the timeout passes
+    public boolean trySubmit(Student s, long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (!shutdown && size.getAsInt() >= maxQueued) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            enqueue(s);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Stop taking new students; the ones already queued are still served
+    public void shutdown() {
+        lock.lock();
+        try {
+            shutdown = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Stop at once: interrupts running handlers and returns the students never served
+    public List<Student> shutdownNow() {
+        List<Student> unserved = new ArrayList<>();
+        lock.lock();
+        try {
+            shutdown = true;
+            dispatcher.interrupt();
+            for (Student s = poll.get(); s != null; s = poll.get()) {
+                unserved.add(s);
+            }
+            enqueuedAt.clear();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        executor.shutdownNow();
+        return unserved;
+    }
+
+    // Wait for the queue to drain and running handlers to finish, after shutdown()
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        dispatcher.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+        if (dispatcher.isAlive()) {
+            return false;
+        }
+        return executor.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    // Graceful: serve everything queued, then stop. Interrupting the caller
+    // turns it into shutdownNow.
+    @Override
+    public void close() {
+        shutdown();
+        try {
+            while (!awaitTermination(1, TimeUnit.MINUTES)) {
+                // keep waiting for slow handlers
+            }
+        } catch (InterruptedException e) {
+            shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean usesVirtualThreads() { return virtualThreads; }
+    public long getSubmitted() { return submitted.get(); }
+    public long getCompleted() { return completed.get(); }
+    // Handlers that threw; they also count as completed
+    public long getFailed() { return failed.get(); }
+
+    public int getQueued() {
+        lock.lock();
+        try {
+            return size.getAsInt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Time inside the handler
+    public OperationSnapshot getServiceLatency() {
+        return serviceLatency.snapshot("SERVICE", seconds());
+    }
+
+    // Time from submit to the end of the handler, including the wait in the queue
+    public OperationSnapshot getTotalLatency() {
+        return totalLatency.snapshot("TOTAL", seconds());
+    }
+
+    public String statsSummary() {
+        return String.format("submitted=%d completed=%d failed=%d queued=%d threads=%s%n  %s%n  %s",
+                submitted.get(), completed.get(), failed.get(), getQueued(), virtualThreads ? "virtual" : "platform",
+                getServiceLatency(), getTotalLatency());
+    }
+
+    private void enqueue(Student s) {
+        if (shutdown) {
+            throw new RejectedExecutionException("Serving engine is shut down");
+        }
+        add.accept(s);
+        enqueuedAt.put(s, System.nanoTime());
+        submitted.incrementAndGet();
+        notEmpty.signal();
+    }
+
+    private void dispatch() {
+        try {
+            while (true) {
+                permits.acquire();
+                lock.lock();
+                try {
+                    while (!shutdown && size.getAsInt() == 0) {
+                        notEmpty.await();
+                    }
+                    Student s = poll.get();
+                    if (s == null) {
+                        break;      // shut down and drained
+                    }
+                    Long at = enqueuedAt.remove(s);
+                    long enqueued = at == null ? System.nanoTime() : at;
+                    notFull.signal();
+                    // Handed over under the lock, so shutdownNow() finds each
+                    // student still queued or already running, never taken but
+                    // not yet started; the executor is only shut down after that
+                    executor.execute(() -> serve(s, enqueued));
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } catch (InterruptedException e) {
+            // shutdownNow
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private void serve(Student s, long enqueued) {
+        long start = System.nanoTime();
+        try {
+            handler.handle(s);
+        } catch (Exception e) {
+            failed.incrementAndGet();
+        } finally {
+            long end = System.nanoTime();
+            serviceLatency.record(end - start);
+            totalLatency.record(end - enqueued);
+            completed.incrementAndGet();
+            permits.release();
+        }
+    }
+
+    private double seconds() {
+        return (System.nanoTime() - startedNanos) / 1e9;
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() is Java 21+, so look it up at run time
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
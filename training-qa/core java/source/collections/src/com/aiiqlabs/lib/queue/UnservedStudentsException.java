@@ -0,0 +1,27 @@
+package com.aiiqlabs.lib.queue;
+
+import java.util.List;
+
+import com.aiiqlabs.modal.Student;
+
+// Thrown by StudentRingBufferQueueManager.serveStudents when its consumer
+// throws. The cause is the consumer's exception; getUnserved() holds the
+// students the batch had already taken off the queue but not handed over,
+// starting with the one the consumer threw on, so the caller can retry them
+// or queue them again instead of losing them.
+public class UnservedStudentsException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient List<Student> unserved;
+
+    UnservedStudentsException(List<Student> unserved, RuntimeException cause) {
+        super(unserved.size() + " students taken but not served", cause);
+        this.unserved = unserved;
+    }
+
+    // Queue order; empty after deserialization
+    public List<Student> getUnserved() {
+        return unserved == null ? List.of() : unserved;
+    }
+}
@@ -0,0 +1,246 @@
+package com.aiiqlabs.lib.stats;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import com.aiiqlabs.lib.list.StudentManager;
+
+// Aggregates over primitive double[] marks, split across a fork-join pool.
+//
+// Floating-point sums depend on the order of additions, so every sum here is
+// taken over fixed 4096-element blocks combined along a fixed binary tree of
+// block ranges. The parallel path only forks that same tree, which makes its
+// results bit-for-bit identical to sequential() on the same input.
+public class MarksStatistics {
+
+    private static final int BLOCK = 4096;
+
+    private final ForkJoinPool pool;    // null runs every task on the caller
+
+    public MarksStatistics() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public MarksStatistics(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public static MarksStatistics sequential() {
+        return new MarksStatistics(null);
+    }
+
+    public MarksSummary summarize(StudentManager manager) {
+        return summarize(manager.getAllMarks());
+    }
+
+    public MarksSummary summarize(double[] marks) {
+        int n = marks.length;
+        if (n == 0) {
+            return new MarksSummary(0, Double.NaN, Double.NaN, Double.NaN, Double.NaN, Double.NaN);
+        }
+        Moments moments = run(new MomentsTask(marks, 0, blocks(n)));
+        double mean = moments.sum / n;
+        // Second pass over squared deviations is far more accurate than sum of squares
+        double squares = run(new DeviationTask(marks, 0, blocks(n), mean));
+        return new MarksSummary(n, moments.min, moments.max, mean, Math.sqrt(squares / n), median(marks));
+    }
+
+    public double mean(double[] marks) {
+        return marks.length == 0 ? Double.NaN : run(new MomentsTask(marks, 0, blocks(marks.length))).sum / marks.length;
+    }
+
+    public double median(double[] marks) {
+        int n = marks.length;
+        if (n == 0) {
+            return Double.NaN;
+        }
+        double[] sorted = marks.clone();
+        if (pool == null) {
+            Arrays.sort(sorted);
+        } else {
+            Arrays.parallelSort(sorted);
+        }
+        return n % 2 == 1 ? sorted[n / 2] : (sorted[n / 2 - 1] + sorted[n / 2]) / 2;
+    }
+
+    // Counts per equal-width bin over [from, to]; values outside (or NaN) are ignored
+    public long[] histogram(StudentManager manager, double from, double to, int bins) {
+        return histogram(manager.getAllMarks(), from, to, bins);
+    }
+
+    public long[] histogram(double[] marks, double from, double to, int bins) {
+        if (bins <= 0 || !(from < to)) {
+            throw new IllegalArgumentException("Need at least one bin and from < to");
+        }
+        if (marks.length == 0) {
+            return new long[bins];
+        }
+        return run(new HistogramTask(marks, 0, blocks(marks.length), from, to, bins));
+    }
+
+    private <R> R run(BlockTask<R> task) {
+        return pool == null ? task.compute() : pool.invoke(task);
+    }
+
+    private static int blocks(int length) {
+        return (length + BLOCK - 1) / BLOCK;
+    }
+
+    // Reduces a range of blocks; the split points depend only on the range
+    private abstract class BlockTask<R> extends RecursiveTask<R> {
+
+        private static final long serialVersionUID = 1L;
+
+        final double[] marks;
+        final int firstBlock;
+        final int endBlock;
+
+        BlockTask(double[] marks, int firstBlock, int endBlock) {
+            this.marks = marks;
+            this.firstBlock = firstBlock;
+            this.endBlock = endBlock;
+        }
+
+        @Override
+        protected R compute() {
+            if (endBlock - firstBlock == 1) {
+                return leaf(firstBlock * BLOCK, Math.min(marks.length, (firstBlock + 1) * BLOCK));
+            }
+            int mid = (firstBlock + endBlock) >>> 1;
+            BlockTask<R> left = split(firstBlock, mid);
+            BlockTask<R> right = split(mid, endBlock);
+            if (pool == null) {
+                return combine(left.compute(), right.compute());
+            }
+            left.fork();
+            R rightResult = right.compute();
+            return combine(left.join(), rightResult);
+        }
+
+        abstract R leaf(int from, int to);
+
+        abstract R combine(R left, R right);
+
+        abstract BlockTask<R> split(int first, int end);
+    }
+
+    private static class Moments {
+        final double sum;
+        final double min;
+        final double max;
+
+        Moments(double sum, double min, double max) {
+            this.sum = sum;
+            this.min = min;
+            this.max = max;
+        }
+    }
+
+    private class MomentsTask extends BlockTask<Moments> {
+
+        private static final long serialVersionUID = 1L;
+
+        MomentsTask(double[] marks, int firstBlock, int endBlock) {
+            super(marks, firstBlock, endBlock);
+        }
+
+        @Override
+        Moments leaf(int from, int to) {
+            double sum = 0;
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = from; i < to; i++) {
+                double m = marks[i];
+                sum += m;
+                min = Math.min(min, m);
+                max = Math.max(max, m);
+            }
+            return new Moments(sum, min, max);
+        }
+
+        @Override
+        Moments combine(Moments left, Moments right) {
+            return new Moments(left.sum + right.sum, Math.min(left.min, right.min), Math.max(left.max, right.max));
+        }
+
+        @Override
+        BlockTask<Moments> split(int first, int end) {
+            return new MomentsTask(marks, first, end);
+        }
+    }
+
+    private class DeviationTask extends BlockTask<Double> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final double mean;
+
+        DeviationTask(double[] marks, int firstBlock, int endBlock, double mean) {
+            super(marks, firstBlock, endBlock);
+            this.mean = mean;
+        }
+
+        @Override
+        Double leaf(int from, int to) {
+            double sum = 0;
+            for (int i = from; i < to; i++) {
+                double d = marks[i] - mean;
+                sum += d * d;
+            }
+            return sum;
+        }
+
+        @Override
+        Double combine(Double left, Double right) {
+            return left + right;
+        }
+
+        @Override
+        BlockTask<Double> split(int first, int end) {
+            return new DeviationTask(marks, first, end, mean);
+        }
+    }
+
+    private class HistogramTask extends BlockTask<long[]> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final double from;
+        private final double to;
+        private final int bins;
+
+        HistogramTask(double[] marks, int firstBlock, int endBlock, double from, double to, int bins) {
+            super(marks, firstBlock, endBlock);
+            this.from = from;
+            this.to = to;
+            this.bins = bins;
+        }
+
+        @Override
+        long[] leaf(int start, int end) {
+            long[] counts = new long[bins];
+            double scale = bins / (to - from);
+            for (int i = start; i < end; i++) {
+                double m = marks[i];
+                if (m >= from && m <= to) {
+                    counts[Math.min((int) ((m - from) * scale), bins - 1)]++;
+                }
+            }
+            return counts;
+        }
+
+        @Override
+        long[] combine(long[] left, long[] right) {
+            for (int i = 0; i < bins; i++) {
+                left[i] += right[i];
+            }
+            return left;
+        }
+
+        @Override
+        BlockTask<long[]> split(int first, int end) {
+            return new HistogramTask(marks, first, end, from, to, bins);
+        }
+    }
+}
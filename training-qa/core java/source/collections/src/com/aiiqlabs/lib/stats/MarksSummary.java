@@ -0,0 +1,64 @@
+package com.aiiqlabs.lib.stats;
+
+// Aggregates of a set of marks; NaN everywhere for an empty set
+public class MarksSummary {
+
+    private final long count;
+    private final double min;
+    private final double max;
+    private final double mean;
+    private final double standardDeviation;
+    private final double median;
+
+    public MarksSummary(long count, double min, double max, double mean, double standardDeviation, double median) {
+        this.count = count;
+        this.min = min;
+        this.max = max;
+        this.mean = mean;
+        this.standardDeviation = standardDeviation;
+        this.median = median;
+    }
+
+    public long getCount() { return count; }
+    public double getMin() { return min; }
+    public double getMax() { return max; }
+    public double getMean() { return mean; }
+    // Population standard deviation
+    public double getStandardDeviation() { return standardDeviation; }
+    public double getMedian() { return median; }
+
+    // Exact comparison, so sequential and parallel results can be checked bit for bit
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof MarksSummary)) {
+            return false;
+        }
+        MarksSummary other = (MarksSummary) o;
+        return count == other.count
+                && Double.compare(min, other.min) == 0
+                && Double.compare(max, other.max) == 0
+                && Double.compare(mean, other.mean) == 0
+                && Double.compare(standardDeviation, other.standardDeviation) == 0
+                && Double.compare(median, other.median) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        long h = count;
+        h = 31 * h + Double.doubleToLongBits(min);
+        h = 31 * h + Double.doubleToLongBits(max);
+        h = 31 * h + Double.doubleToLongBits(mean);
+        h = 31 * h + Double.doubleToLongBits(standardDeviation);
+        h = 31 * h + Double.doubleToLongBits(median);
+        return Long.hashCode(h);
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + count + ", min=" + min + ", max=" + max + ", mean=" + mean
+                + ", stddev=" + standardDeviation + ", median=" + median;
+    }
+}
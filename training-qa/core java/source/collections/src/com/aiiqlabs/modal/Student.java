@@ -3,7 +3,7 @@ package com.aiiqlabs.modal;
 public class Student {
     private int id;
     private String name;
-    private double marks;
+    private volatile double marks;   // updated in place by concurrent rosters
 
     public Student(int id, String name, double marks) {
         this.id = id;
@@ -0,0 +1,60 @@
+package com.aiiqlabs.exceptions;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+// SIMD loops on the incubator Vector API, as wide as the CPU allows, with a
+// scalar tail. Kept in its own source root so src compiles with plain javac;
+// build it alongside src with the incubator module added:
+//   javac --add-modules jdk.incubator.vector -d bin $(find src src-vector -name '*.java')
+// and run with --add-modules jdk.incubator.vector too. MathsOperations only
+// loads this class when it was built and the module is there.
+final class VectorBulkMaths implements BulkMaths {
+
+	private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+	// Half as wide, so one vector of ints widens into one vector of longs
+	private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED
+			.withShape(VectorShape.forBitSize(LONGS.vectorBitSize() / 2));
+	private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+	private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+
+	@Override
+	public void add(int[] first, int[] second, long[] out, int length) {
+		int i = 0;
+		for (int upper = INTS.loopBound(length); i < upper; i += INTS.length()) {
+			LongVector a = (LongVector) IntVector.fromArray(INTS, first, i).convertShape(VectorOperators.I2L, LONGS, 0);
+			LongVector b = (LongVector) IntVector.fromArray(INTS, second, i).convertShape(VectorOperators.I2L, LONGS, 0);
+			a.add(b).intoArray(out, i);
+		}
+		for (; i < length; i++) {
+			out[i] = (long) first[i] + second[i];
+		}
+	}
+
+	@Override
+	public void divide(double[] first, double[] second, double[] out, int length) {
+		int i = 0;
+		for (int upper = DOUBLES.loopBound(length); i < upper; i += DOUBLES.length()) {
+			DoubleVector.fromArray(DOUBLES, first, i).div(DoubleVector.fromArray(DOUBLES, second, i)).intoArray(out, i);
+		}
+		for (; i < length; i++) {
+			out[i] = first[i] / second[i];
+		}
+	}
+
+	@Override
+	public void divide(float[] first, float[] second, float[] out, int length) {
+		int i = 0;
+		for (int upper = FLOATS.loopBound(length); i < upper; i += FLOATS.length()) {
+			FloatVector.fromArray(FLOATS, first, i).div(FloatVector.fromArray(FLOATS, second, i)).intoArray(out, i);
+		}
+		for (; i < length; i++) {
+			out[i] = first[i] / second[i];
+		}
+	}
+}
@@ -0,0 +1,12 @@
+package com.aiiqlabs.exceptions;
+
+// Element-wise loops behind the array overloads of MathsOperations. The
+// arrays are already checked; each method handles the first length elements.
+interface BulkMaths {
+
+	void add(int[] first, int[] second, long[] out, int length);
+
+	void divide(double[] first, double[] second, double[] out, int length);
+
+	void divide(float[] first, float[] second, float[] out, int length);
+}
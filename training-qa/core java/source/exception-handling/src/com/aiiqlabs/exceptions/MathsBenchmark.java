@@ -0,0 +1,133 @@
+package com.aiiqlabs.exceptions;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Random;
+
+// Per-pair MathsOperations calls vs the array overloads, and the array
+// overloads vs the plain loops they fall back to. The per-pair divide prints
+// on every call, so its output goes to a discarding stream here - a real
+// console is far slower still. Arrays are sized to stay in cache, and each
+// figure is the best of several rounds.
+// Build src-vector in too and run with --add-modules jdk.incubator.vector to
+// get the SIMD path (see VectorBulkMaths).
+// Args: array length, rounds
+public class MathsBenchmark {
+
+	private static final long ELEMENTS_PER_TIMING = 20_000_000;
+
+	public static void main(String[] args) {
+		int length = args.length > 0 ? Integer.parseInt(args[0]) : 16_384;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+		MathsOperations maths = new MathsOperations();
+		BulkMaths loops = new ScalarBulkMaths();
+		Random random = new Random(1);
+		int[] ints1 = new int[length];
+		int[] ints2 = new int[length];
+		double[] doubles1 = new double[length];
+		double[] doubles2 = new double[length];
+		float[] floats1 = new float[length];
+		float[] floats2 = new float[length];
+		for (int i = 0; i < length; i++) {
+			ints1[i] = random.nextInt();
+			ints2[i] = random.nextInt();
+			doubles1[i] = random.nextDouble() * 1000;
+			doubles2[i] = random.nextDouble() * 100 + 1;
+			floats1[i] = (float) doubles1[i];
+			floats2[i] = (float) doubles2[i];
+		}
+		long[] sums = new long[length];
+		long[] loopSums = new long[length];
+		double[] quotients = new double[length];
+		double[] loopQuotients = new double[length];
+		float[] floatQuotients = new float[length];
+		float[] loopFloatQuotients = new float[length];
+		int reps = (int) Math.max(1, ELEMENTS_PER_TIMING / length);
+		int pairReps = Math.max(1, reps / 50);      // the printing calls are far slower
+
+		double[][] best = new double[3][3];
+		for (double[] row : best) {
+			Arrays.fill(row, Double.MAX_VALUE);
+		}
+		PrintStream console = System.out;
+		PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+		for (int round = 0; round < rounds; round++) {
+			long start = System.nanoTime();
+			for (int r = 0; r < reps; r++) {
+				for (int i = 0; i < length; i++) {
+					sums[i] = maths.add(ints1[i], ints2[i]);
+				}
+			}
+			keepBest(best[0], 0, start, reps, length);
+
+			System.setOut(discard);
+			start = System.nanoTime();
+			for (int r = 0; r < pairReps; r++) {
+				for (int i = 0; i < length; i++) {
+					quotients[i] = maths.divide(doubles1[i], doubles2[i]);
+				}
+			}
+			keepBest(best[1], 0, start, pairReps, length);
+			start = System.nanoTime();
+			for (int r = 0; r < pairReps; r++) {
+				for (int i = 0; i < length; i++) {
+					floatQuotients[i] = maths.divide(floats1[i], floats2[i]);
+				}
+			}
+			keepBest(best[2], 0, start, pairReps, length);
+			System.setOut(console);
+
+			start = System.nanoTime();
+			for (int r = 0; r < reps; r++) {
+				loops.add(ints1, ints2, loopSums, length);
+			}
+			keepBest(best[0], 1, start, reps, length);
+			start = System.nanoTime();
+			for (int r = 0; r < reps; r++) {
+				maths.add(ints1, ints2, sums);
+			}
+			keepBest(best[0], 2, start, reps, length);
+
+			start = System.nanoTime();
+			for (int r = 0; r < reps; r++) {
+				loops.divide(doubles1, doubles2, loopQuotients, length);
+			}
+			keepBest(best[1], 1, start, reps, length);
+			start = System.nanoTime();
+			for (int r = 0; r < reps; r++) {
+				maths.divide(doubles1, doubles2, quotients);
+			}
+			keepBest(best[1], 2, start, reps, length);
+
+			start = System.nanoTime();
+			for (int r = 0; r < reps; r++) {
+				loops.divide(floats1, floats2, loopFloatQuotients, length);
+			}
+			keepBest(best[2], 1, start, reps, length);
+			start = System.nanoTime();
+			for (int r = 0; r < reps; r++) {
+				maths.divide(floats1, floats2, floatQuotients);
+			}
+			keepBest(best[2], 2, start, reps, length);
+
+			if (!Arrays.equals(sums, loopSums) || !Arrays.equals(quotients, loopQuotients)
+					|| !Arrays.equals(floatQuotients, loopFloatQuotients)) {
+				throw new IllegalStateException("Array overloads disagree with the plain loops");
+			}
+		}
+
+		System.out.printf("%,d elements per array, Vector API in use: %b%n", length, MathsOperations.isVectorized());
+		System.out.printf("%-18s %16s %16s %16s%n", "ns per element", "per-pair call", "plain loop", "array overload");
+		String[] labels = { "add int -> long", "divide double", "divide float" };
+		for (int op = 0; op < labels.length; op++) {
+			System.out.printf("%-18s %16.3f %16.3f %16.3f%n", labels[op], best[op][0], best[op][1], best[op][2]);
+		}
+	}
+
+	private static void keepBest(double[] row, int column, long start, int reps, int length) {
+		double perElement = (double) (System.nanoTime() - start) / ((long) reps * length);
+		row[column] = Math.min(row[column], perElement);
+	}
+}
@@ -2,6 +2,9 @@ package com.aiiqlabs.exceptions;
 
 public class MathsOperations {
 	
+	// Loops behind the array overloads: SIMD when the JVM runs with
+	// --add-modules jdk.incubator.vector, plain loops otherwise
+	private static final BulkMaths BULK = loadBulkMaths();
 	
 	public long add(int firstInput, int secondInput) {
 		return firstInput + secondInput;
@@ -42,6 +45,51 @@ public class MathsOperations {
 		return  firstNum / secondNum;
 	}
 	
-
+	// Array overloads: out[i] = firstInput[i] op secondInput[i]. No logging,
+	// so they cost only the arithmetic. out may be longer than the inputs.
+	
+	// Sums are exact, since out holds longs
+	public void add(int[] firstInput, int[] secondInput, long[] out) {
+		BULK.add(firstInput, secondInput, out, checkLengths(firstInput.length, secondInput.length, out.length));
+	}
+	
+	public void divide(double[] firstInput, double[] secondInput, double[] out) {
+		BULK.divide(firstInput, secondInput, out, checkLengths(firstInput.length, secondInput.length, out.length));
+	}
+	
+	public void divide(float[] firstInput, float[] secondInput, float[] out) {
+		BULK.divide(firstInput, secondInput, out, checkLengths(firstInput.length, secondInput.length, out.length));
+	}
+	
+	// CPUs have no SIMD integer divide, so this stays a plain loop. A zero
+	// divisor throws ArithmeticException, with out filled up to that element.
+	public void divide(int[] firstInput, int[] secondInput, int[] out) {
+		int length = checkLengths(firstInput.length, secondInput.length, out.length);
+		for (int i = 0; i < length; i++) {
+			out[i] = firstInput[i] / secondInput[i];
+		}
+	}
+	
+	// True when the array overloads run on the Vector API
+	public static boolean isVectorized() {
+		return !(BULK instanceof ScalarBulkMaths);
+	}
+	
+	private static int checkLengths(int first, int second, int out) {
+		if (first != second || out < first) {
+			throw new IllegalArgumentException("Inputs must be the same length and out at least as long");
+		}
+		return first;
+	}
+	
+	// VectorBulkMaths lives in src-vector and is only there in builds that add
+	// jdk.incubator.vector; anything else gets the plain loops
+	private static BulkMaths loadBulkMaths() {
+		try {
+			return (BulkMaths) Class.forName("com.aiiqlabs.exceptions.VectorBulkMaths").getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			return new ScalarBulkMaths();
+		}
+	}
 
 }
@@ -0,0 +1,26 @@
+package com.aiiqlabs.exceptions;
+
+// Plain loops, used when the Vector API module is not available
+final class ScalarBulkMaths implements BulkMaths {
+
+	@Override
+	public void add(int[] first, int[] second, long[] out, int length) {
+		for (int i = 0; i < length; i++) {
+			out[i] = (long) first[i] + second[i];
+		}
+	}
+
+	@Override
+	public void divide(double[] first, double[] second, double[] out, int length) {
+		for (int i = 0; i < length; i++) {
+			out[i] = first[i] / second[i];
+		}
+	}
+
+	@Override
+	public void divide(float[] first, float[] second, float[] out, int length) {
+		for (int i = 0; i < length; i++) {
+			out[i] = first[i] / second[i];
+		}
+	}
+}